@@ -1,7 +1,13 @@
 package bg.sofia.uni.fmi.mjt.spotify.client;
 
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer;
 import bg.sofia.uni.fmi.mjt.spotify.client.exceptions.InvalidOperationException;
+import bg.sofia.uni.fmi.mjt.spotify.client.pipeline.RequestPipeline;
 import bg.sofia.uni.fmi.mjt.spotify.client.player.Player;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcDecoder;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
@@ -14,18 +20,19 @@ import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 public class Client implements Runnable {
     private static final String CLIENT_ERR_LOG = "project/spotify/resources/client/clientErrLog.txt";
     private static final int SERVER_PORT = 6666;
     private static final String SERVER_HOST = "localhost";
-    private static final int BUFFER_SIZE = 1024;
 
     private static final int RESPONSE_STATUS_IDX = 0;
     private static final int ENCODING_IDX = 1;
@@ -35,10 +42,17 @@ public class Client implements Runnable {
     private static final int FRAME_SIZE_IDX = 5;
     private static final int FRAME_RATE_IDX = 6;
     private static final int BIG_ENDIAN_IDX = 7;
-    private static final int PORT_IDX = 8;
+    // only when the song is not streamed as it is
+    private static final int CODEC_IDX = 8;
 
-    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
-    private SourceDataLine sourceDataLine = null;
+    private static final String BATCH_COMMAND = "batch";
+    private static final int BATCH_WINDOW = 256;
+    // these change what the client itself does, so they are only sent one at a time
+    private static final Set<String> NOT_BATCHED_COMMANDS = Set.of("play", "stop", "disconnect", BATCH_COMMAND);
+
+    private FrameDemultiplexer demultiplexer;
+    private volatile SourceDataLine sourceDataLine = null;
+    private volatile Player player = null;
     private String userName = null;
 
     @Override
@@ -51,6 +65,13 @@ public class Client implements Runnable {
             socketChannel = SocketChannel.open();
             socketChannel.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT));
             System.out.println("Connected to the server.");
+            // songs are streamed compressed when the server can encode them, the reply to this is not needed
+            sendFrame(Frame.hello(Encoding.TEXT, AudioCodec.LPC), socketChannel);
+
+            demultiplexer = new FrameDemultiplexer(socketChannel);
+            Thread demultiplexerThread = new Thread(demultiplexer, "Frame Demultiplexer Thread");
+            demultiplexerThread.setDaemon(true);
+            demultiplexerThread.start();
 
             while (processUserInput(scanner, socketChannel, errWriter)) {
             }
@@ -69,20 +90,32 @@ public class Client implements Runnable {
         if ("stop".equalsIgnoreCase(input)) {
             try {
                 stopSong();
-                System.out.println("Song stopped.");
             } catch (InvalidOperationException e) {
                 handleErr(logger, e);
+                return true;
             }
+        } else if (input.toLowerCase().startsWith("play ") && sourceDataLine != null) {
+            System.out.println("Song is already playing!");
             return true;
-        } else {
+        } else if (input.toLowerCase().startsWith(BATCH_COMMAND + " ")) {
             try {
-                manageServerCommunication(input, socketChannel);
+                runBatch(input.substring(BATCH_COMMAND.length()).strip(), socketChannel);
             } catch (IOException e) {
-                System.out.println("Server connection lost.");
-                return false;
-            } catch (Exception e) {
+                handleErr(logger, e);
+                return demultiplexer.isConnected();
+            } catch (InvalidOperationException e) {
                 handleErr(logger, e);
             }
+            return true;
+        }
+
+        try {
+            manageServerCommunication(input, socketChannel);
+        } catch (IOException e) {
+            System.out.println("Server connection lost.");
+            return false;
+        } catch (Exception e) {
+            handleErr(logger, e);
         }
 
         return !"disconnect".equalsIgnoreCase(input);
@@ -92,10 +125,10 @@ public class Client implements Runnable {
             throws IOException, LineUnavailableException {
         System.out.println("Sending request <" + input + "> to the server");
         sendRequest(input, socketChannel);
-        String reply = receiveResponse(socketChannel);
+        String reply = demultiplexer.nextResponse();
 
         if (reply.startsWith("ok ")) {
-            playSong(reply);
+            playSong(reply, socketChannel);
         } else if (reply.startsWith("Successfully logged")) {
             userName = input.split(" ")[1];
             System.out.println("Logged in as " + userName);
@@ -104,6 +137,31 @@ public class Client implements Runnable {
         }
     }
 
+    private void runBatch(String fileName, SocketChannel socketChannel)
+            throws IOException, InvalidOperationException {
+        List<String> requests = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(fileName))) {
+            String request = line.strip();
+            if (request.isEmpty()) {
+                continue;
+            }
+            String commandName = request.split("\\s+", 2)[0].toLowerCase();
+            if (NOT_BATCHED_COMMANDS.contains(commandName)) {
+                throw new InvalidOperationException("<" + commandName + "> cannot be used in a batch");
+            }
+            requests.add(request);
+        }
+
+        System.out.println("Sending " + requests.size() + " requests to the server");
+        List<String> replies = new RequestPipeline(socketChannel, demultiplexer, BATCH_WINDOW).execute(requests);
+        for (int i = 0; i < requests.size(); ++i) {
+            System.out.println((i + 1) + ". <" + requests.get(i) + "> " + replies.get(i));
+            if (requests.get(i).toLowerCase().startsWith("login ") && replies.get(i).startsWith("Successfully logged")) {
+                userName = requests.get(i).split(" ")[1];
+            }
+        }
+    }
+
     private void shutdown(SocketChannel socketChannel) {
         try {
             stopSong();
@@ -129,30 +187,16 @@ public class Client implements Runnable {
     }
 
     private void sendRequest(String request, SocketChannel socketChannel) throws IOException {
-        buffer.clear();
-        buffer.put(request.getBytes());
-        buffer.flip();
-        socketChannel.write(buffer);
+        sendFrame(Frame.request(request), socketChannel);
     }
 
-    private String receiveResponse(SocketChannel socketChannel) throws IOException {
-        buffer.clear();
-        int readBytes = socketChannel.read(buffer);
-        if (readBytes < 0) {
-            throw new IOException("Server disconnected");
+    private void sendFrame(ByteBuffer frame, SocketChannel socketChannel) throws IOException {
+        while (frame.hasRemaining()) {
+            socketChannel.write(frame);
         }
-        buffer.flip();
-        byte[] byteArray = new byte[buffer.remaining()];
-        buffer.get(byteArray);
-
-        return new String(byteArray, StandardCharsets.UTF_8);
     }
 
-    private void playSong(String response) throws LineUnavailableException {
-        if (sourceDataLine != null) {
-            System.out.println("Song is already playing!");
-            return;
-        }
+    private void playSong(String response, SocketChannel socketChannel) throws IOException, LineUnavailableException {
         String[] splitReply = response.split("\\s+");
 
         if (!splitReply[RESPONSE_STATUS_IDX].equalsIgnoreCase("ok")) {
@@ -164,25 +208,40 @@ public class Client implements Runnable {
                 Integer.parseInt(splitReply[CHANNELS_IDX]), Integer.parseInt(splitReply[FRAME_SIZE_IDX]),
                 Float.parseFloat(splitReply[FRAME_RATE_IDX]), Boolean.parseBoolean(splitReply[BIG_ENDIAN_IDX]));
 
-        int streamingPort = Integer.parseInt(splitReply[PORT_IDX]);
-
-        Line.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
-        sourceDataLine = (SourceDataLine) AudioSystem.getLine(info);
-        sourceDataLine.open();
+        LpcDecoder decoder = null;
+        try {
+            if (splitReply.length > CODEC_IDX && AudioCodec.of(splitReply[CODEC_IDX]) == AudioCodec.LPC) {
+                decoder = new LpcDecoder(audioFormat.getChannels(), audioFormat.isBigEndian());
+            }
+            Line.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
+            sourceDataLine = (SourceDataLine) AudioSystem.getLine(info);
+            sourceDataLine.open();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            sourceDataLine = null;
+            // the server keeps streaming until it is told to stop, and refuses every play until then
+            sendRequest("stop", socketChannel);
+            demultiplexer.discardStream();
+            demultiplexer.nextResponse();
+            throw e;
+        }
 
         System.out.println("now playing...");
-        new Thread(new Player(streamingPort, SERVER_HOST, sourceDataLine, this), "Player Thread").start();
+        player = new Player(sourceDataLine, this, decoder);
+        demultiplexer.setPlayer(player);
+        new Thread(player, "Player Thread").start();
     }
 
     private void stopSong() throws InvalidOperationException {
-        if (sourceDataLine == null) {
+        Player current = player;
+        if (current == null) {
             throw new InvalidOperationException("Nothing to stop (no song is being played)");
         }
-        sourceDataLine.stop();
+        current.stop();
     }
 
     public void resetSourceDataLine() {
         sourceDataLine = null;
+        player = null;
     }
 
     public static void main(String[] args) {
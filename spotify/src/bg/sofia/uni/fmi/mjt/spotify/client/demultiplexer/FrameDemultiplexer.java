@@ -0,0 +1,158 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer;
+
+import bg.sofia.uni.fmi.mjt.spotify.client.player.Player;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.FrameType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class FrameDemultiplexer implements Runnable {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final SocketChannel socketChannel;
+    private final BlockingQueue<String> responses;
+    private final BlockingQueue<TaggedResponse> taggedResponses;
+    private final ByteBuffer header;
+    private final List<byte[]> earlyChunks;
+    private Player player;
+    private boolean earlyEnd;
+    private boolean discarding;
+    private volatile boolean connected;
+
+    public record TaggedResponse(int requestId, String response) {
+    }
+
+    public FrameDemultiplexer(SocketChannel socketChannel) {
+        this.socketChannel = socketChannel;
+        this.responses = new LinkedBlockingQueue<>();
+        this.taggedResponses = new LinkedBlockingQueue<>();
+        this.header = ByteBuffer.allocate(Frame.HEADER_SIZE);
+        this.earlyChunks = new ArrayList<>();
+        this.connected = true;
+    }
+
+    public synchronized void setPlayer(Player player) {
+        //audio frames may arrive before the player for them is created
+        for (byte[] chunk : earlyChunks) {
+            player.feed(chunk);
+        }
+        earlyChunks.clear();
+        if (earlyEnd) {
+            player.finish();
+            earlyEnd = false;
+        } else {
+            this.player = player;
+        }
+    }
+
+    public synchronized void discardStream() {
+        earlyChunks.clear();
+        if (earlyEnd) {
+            earlyEnd = false;
+        } else {
+            discarding = true;
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public String nextResponse() throws IOException {
+        return take(responses);
+    }
+
+    public TaggedResponse nextTaggedResponse() throws IOException {
+        return take(taggedResponses);
+    }
+
+    private <T> T take(BlockingQueue<T> queue) throws IOException {
+        try {
+            T response;
+            while ((response = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+                if (!connected) {
+                    throw new IOException("Server disconnected");
+                }
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                header.clear();
+                readFully(header);
+                header.flip();
+
+                FrameType type = FrameType.of(header.get());
+                ByteBuffer payload = ByteBuffer.allocate(header.getInt());
+                readFully(payload);
+
+                dispatch(type, payload.array());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // the server closed the connection or sent garbage, either way we are done
+        } finally {
+            connected = false;
+            endAudio();
+        }
+    }
+
+    private void dispatch(FrameType type, byte[] payload) {
+        switch (type) {
+            case RESPONSE -> responses.add(new String(payload, StandardCharsets.UTF_8));
+            case TAGGED_RESPONSE -> {
+                ByteBuffer tagged = ByteBuffer.wrap(payload);
+                int requestId = tagged.getInt();
+                taggedResponses.add(new TaggedResponse(requestId,
+                        new String(payload, Frame.REQUEST_ID_SIZE, payload.length - Frame.REQUEST_ID_SIZE,
+                                StandardCharsets.UTF_8)));
+            }
+            case AUDIO -> feedAudio(payload);
+            case AUDIO_END -> endAudio();
+            default -> {
+                // requests are never sent to the client, and the streams say their codec in the play reply
+            }
+        }
+    }
+
+    private synchronized void feedAudio(byte[] chunk) {
+        if (player != null) {
+            player.feed(chunk);
+        } else if (!discarding) {
+            earlyChunks.add(chunk);
+        }
+    }
+
+    private synchronized void endAudio() {
+        if (player != null) {
+            player.finish();
+            player = null;
+        } else if (discarding) {
+            discarding = false;
+        } else {
+            earlyEnd = true;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (socketChannel.read(buffer) < 0) {
+                throw new IOException("Server disconnected");
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.pipeline;
+
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer;
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer.TaggedResponse;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RequestPipeline {
+    private final SocketChannel socketChannel;
+    private final FrameDemultiplexer demultiplexer;
+    private final int window;
+
+    public RequestPipeline(SocketChannel socketChannel, FrameDemultiplexer demultiplexer, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.socketChannel = socketChannel;
+        this.demultiplexer = demultiplexer;
+        this.window = window;
+    }
+
+    public List<String> execute(List<String> requests) throws IOException {
+        String[] responses = new String[requests.size()];
+        int sent = 0;
+        int received = 0;
+        while (received < requests.size()) {
+            // keep up to window requests in flight instead of waiting a round trip for each
+            int toSend = Math.min(requests.size(), received + window);
+            send(requests, sent, toSend);
+            sent = toSend;
+
+            TaggedResponse response = demultiplexer.nextTaggedResponse();
+            int requestId = response.requestId();
+            if (requestId < 0 || requestId >= sent || responses[requestId] != null) {
+                throw new IOException("Unexpected response id: " + requestId);
+            }
+            responses[requestId] = response.response();
+            ++received;
+        }
+        return Arrays.asList(responses);
+    }
+
+    private void send(List<String> requests, int from, int to) throws IOException {
+        if (from >= to) {
+            return;
+        }
+        List<ByteBuffer> frames = new ArrayList<>();
+        int size = 0;
+        for (int requestId = from; requestId < to; ++requestId) {
+            ByteBuffer frame = Frame.taggedRequest(requestId, requests.get(requestId));
+            size += frame.remaining();
+            frames.add(frame);
+        }
+
+        ByteBuffer batch = ByteBuffer.allocate(size);
+        frames.forEach(batch::put);
+        batch.flip();
+        while (batch.hasRemaining()) {
+            socketChannel.write(batch);
+        }
+    }
+}
@@ -1,47 +1,78 @@
 package bg.sofia.uni.fmi.mjt.spotify.client.player;
 
 import bg.sofia.uni.fmi.mjt.spotify.client.Client;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcDecoder;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
 
 import javax.sound.sampled.SourceDataLine;
-import java.io.BufferedInputStream;
-import java.io.IOException;
-import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class Player implements Runnable {
-    private final int port;
-    private final String serverHost;
+    private static final byte[] END_OF_SONG = new byte[0];
+
     private final SourceDataLine dataLine;
     private final Client client;
+    // null when the song is streamed as it is
+    private final LpcDecoder decoder;
+    private final BlockingQueue<byte[]> chunks;
+    private volatile boolean finished;
+
+    public Player(SourceDataLine dataLine, Client client) {
+        this(dataLine, client, null);
+    }
 
-    public Player(int port, String serverHost, SourceDataLine dataLine, Client client) {
-        this.port = port;
-        this.serverHost = serverHost;
+    public Player(SourceDataLine dataLine, Client client, LpcDecoder decoder) {
         this.dataLine = dataLine;
         this.client = client;
+        this.decoder = decoder;
+        this.chunks = new LinkedBlockingQueue<>();
+        this.finished = false;
+    }
+
+    public void feed(byte[] chunk) {
+        if (!finished) {
+            chunks.add(chunk);
+        }
+    }
+
+    public void finish() {
+        if (!finished) {
+            finished = true;
+            chunks.add(END_OF_SONG);
+        }
+    }
+
+    public void stop() {
+        finished = true;
+        chunks.clear();
+        chunks.add(END_OF_SONG);
+        dataLine.stop();
+        dataLine.flush();
     }
 
     @Override
     public void run() {
-        try (Socket socket = new Socket(serverHost, port);
-             BufferedInputStream bufferedInputStream = new BufferedInputStream(socket.getInputStream())) {
-
-            byte[] toWrite = new byte[dataLine.getFormat().getFrameSize()];
-            dataLine.start();
-            try {
-                do {
-                    int readBytes = bufferedInputStream.read(toWrite, 0, toWrite.length);
-                    if (readBytes == -1) {
-                        break;
-                    }
-                    dataLine.write(toWrite, 0, readBytes);
-                } while (dataLine.isRunning());
-
-            } catch (IllegalArgumentException e) {
-                //bufferedInputStream reached the end, it doesn't matter
+        int frameSize = dataLine.getFormat().getFrameSize();
+        byte[] partialFrame = new byte[0];
+        dataLine.start();
+        try {
+            byte[] chunk;
+            while ((chunk = chunks.take()) != END_OF_SONG) {
+                //chunks are not frame aligned, the line accepts only whole frames
+                byte[] data = concat(partialFrame, decoder == null ? chunk : decoder.decode(chunk));
+                int writable = data.length - data.length % frameSize;
+                dataLine.write(data, 0, writable);
+                partialFrame = Arrays.copyOfRange(data, writable, data.length);
             }
-        } catch (IOException e) {
-            System.out.println("Player stopped: Server connection lost.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (MalformedMessageException e) {
+            System.out.println("The song could not be decoded: " + e.getMessage());
         } finally {
+            finished = true;
+            chunks.clear();
             if (dataLine.isOpen()) {
                 dataLine.drain();
                 dataLine.close();
@@ -49,4 +80,13 @@ public class Player implements Runnable {
             client.resetSourceDataLine();
         }
     }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
 }
@@ -13,10 +13,12 @@ import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.Collection;
 
 public interface Database extends Closeable {
-    void registerUser(String email, String password) throws UserAlreadyExistsException, InvalidEmailException;
+    void registerUser(String email, String password)
+            throws UserAlreadyExistsException, InvalidEmailException, IOException;
 
     void checkUser(String email, String password) throws NonExistingUserException, InvalidPasswordException;
 
@@ -26,10 +28,11 @@ public interface Database extends Closeable {
 
     Collection<Song> getTopSongs(int limit);
 
-    void createPlaylist(String title, String ownerEmail) throws NonExistingUserException, InvalidPlaylistInfoException;
+    void createPlaylist(String title, String ownerEmail)
+            throws NonExistingUserException, InvalidPlaylistInfoException, IOException;
 
     void addSong(String playListTitle, String owner, String title, String artist)
-            throws SongAlreadyExistsException, NonExistingPlaylistException, NonExistingSongException;
+            throws SongAlreadyExistsException, NonExistingPlaylistException, NonExistingSongException, IOException;
 
     Collection<Song> getPlaylistSongs(String title, String owner) throws NonExistingPlaylistException;
 
@@ -39,5 +42,12 @@ public interface Database extends Closeable {
 
     Song getSong(String string) throws NonExistingSongException;
 
+    Song getSong(int id) throws NonExistingSongException;
+
+    int getSongId(Song song) throws NonExistingSongException;
+
     String getSongSrc();
+
+    // changes whenever songs are added to or removed from the catalogue
+    long getCatalogueVersion();
 }
@@ -6,6 +6,12 @@ import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingSongException
 import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingUserException;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.playlist.exceptions.SongAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.UserAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.spotify.database.index.SongSearchIndex;
+import bg.sofia.uni.fmi.mjt.spotify.database.index.StreamsLeaderboard;
+import bg.sofia.uni.fmi.mjt.spotify.database.journal.Journal;
+import bg.sofia.uni.fmi.mjt.spotify.database.journal.JournalRecord;
+import bg.sofia.uni.fmi.mjt.spotify.database.metadata.SongMetadataCache;
+import bg.sofia.uni.fmi.mjt.spotify.database.metadata.SongMetadataCache.SongMetadata;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.playlist.DefaultPlaylist;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.playlist.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.playlist.exceptions.InvalidPlaylistInfoException;
@@ -21,14 +27,22 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class DatabaseImpl implements Database {
@@ -37,9 +51,39 @@ public class DatabaseImpl implements Database {
     private final String usersSrc;
     private final String playlistsSrc;
     private static final String WAV = "*.wav";
+    public static final String JOURNAL_FILE = "journal.log";
+    public static final String SONGS_METADATA_FILE = "songs-metadata.txt";
+    private static final String SNAPSHOT_TMP_SUFFIX = ".tmp";
+    private static final int COMPACTION_THRESHOLD = 10_000;
 
     private final Set<Song> songs;
-    private final Map<User, Set<Playlist>> playlistsByUser;
+    private final Map<String, Song> songsByKey;
+    // ids are positions in the load order, they are stable until the next restart
+    private final List<Song> songsById;
+    private final Map<Song, Integer> songIds;
+    private final SongSearchIndex songSearchIndex;
+    private final StreamsLeaderboard streamsLeaderboard;
+    private final Map<String, UserRecord> usersByEmail;
+    private final Journal journal;
+    private final AtomicLong catalogueVersion;
+
+    private record UserRecord(User user, Map<String, Playlist> playlistsByTitle) {
+        UserRecord(User user) {
+            this(user, new ConcurrentHashMap<>());
+        }
+
+        boolean addPlaylist(Playlist playlist) {
+            return playlistsByTitle.putIfAbsent(playlistKey(playlist.getTitle()), playlist) == null;
+        }
+
+        Playlist getPlaylist(String title) {
+            return playlistsByTitle.get(playlistKey(title));
+        }
+
+        void removePlaylist(Playlist playlist) {
+            playlistsByTitle.remove(playlistKey(playlist.getTitle()), playlist);
+        }
+    }
 
     public DatabaseImpl(String databaseDir, String songsSrc, String usersSrc, String playlistsSrc) {
         this.databaseDir = databaseDir;
@@ -48,28 +92,96 @@ public class DatabaseImpl implements Database {
         this.playlistsSrc = playlistsSrc;
 
         songs = new HashSet<>();
-        playlistsByUser = new HashMap<>();
+        songsByKey = new ConcurrentHashMap<>();
+        songsById = new ArrayList<>();
+        songIds = new HashMap<>();
+        songSearchIndex = new SongSearchIndex();
+        streamsLeaderboard = new StreamsLeaderboard();
+        usersByEmail = new ConcurrentHashMap<>();
+        catalogueVersion = new AtomicLong();
         loadSongs();
         loadUsers();
         loadPlaylists();
+
+        journal = new Journal(Path.of(databaseDir + JOURNAL_FILE), COMPACTION_THRESHOLD, this::writeSnapshot);
+        loadJournal();
     }
 
     private void loadSongs() {
+        List<Path> songFiles = new ArrayList<>();
         try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Path.of(databaseDir + songsSrc), WAV)) {
             for (Path filePath : directoryStream) {
                 if (!Files.isDirectory(filePath)) {
-                    String fileName = filePath.getFileName().toString();
-                    try {
-                        songs.add(Song.of(databaseDir + songsSrc, fileName));
-                    } catch (InvalidSongException e) {
-                        System.out.println("The song: " + fileName + " is not loaded");
-                        //continue with the rest
-                    }
+                    songFiles.add(filePath);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException("The playlists folder could not be opened", e);
         }
+
+        SongMetadataCache metadataCache = new SongMetadataCache(Path.of(databaseDir + SONGS_METADATA_FILE));
+        metadataCache.load();
+        metadataCache.retainAll(songFiles.stream().map(filePath -> filePath.getFileName().toString()).toList());
+
+        // probing the wav headers is I/O bound, so the files are opened in parallel
+        ExecutorService loaders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        try {
+            List<Future<Song>> loaded = new ArrayList<>();
+            for (Path filePath : songFiles) {
+                loaded.add(loaders.submit(() -> loadSong(filePath, metadataCache)));
+            }
+            for (Future<Song> future : loaded) {
+                Song song = future.get();
+                if (song != null) {
+                    addLoadedSong(song);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Loading the songs was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("The songs could not be loaded", e.getCause());
+        } finally {
+            loaders.shutdownNow();
+        }
+
+        try {
+            metadataCache.save();
+        } catch (IOException e) {
+            System.out.println("The song metadata cache could not be saved: " + e.getMessage());
+        }
+    }
+
+    private Song loadSong(Path filePath, SongMetadataCache metadataCache) {
+        String fileName = filePath.getFileName().toString();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            SongMetadata cached = metadataCache.get(fileName, attributes.size(), lastModified);
+            if (cached != null) {
+                return Song.of(fileName, cached.audioFormat(), cached.frameSize());
+            }
+
+            Song song = Song.of(databaseDir + songsSrc, fileName);
+            metadataCache.put(fileName,
+                    new SongMetadata(attributes.size(), lastModified, song.getAudioFormat(), song.getFrameSize()));
+            return song;
+        } catch (InvalidSongException | IOException e) {
+            System.out.println("The song: " + fileName + " is not loaded");
+            //continue with the rest
+            return null;
+        }
+    }
+
+    private void addLoadedSong(Song song) {
+        songs.add(song);
+        songIds.put(song, songsById.size());
+        songsById.add(song);
+        songsByKey.put(songKey(song.getTitle(), song.getArtist()), song);
+        songSearchIndex.add(song);
+        streamsLeaderboard.add(song);
+        song.setStreamsListener(streamsLeaderboard::update);
+        catalogueVersion.incrementAndGet();
     }
 
     private void loadUsers() {
@@ -77,7 +189,7 @@ public class DatabaseImpl implements Database {
             for (String line : reader.lines().collect(Collectors.toSet())) {
                 try {
                     User currUser = User.of(line);
-                    playlistsByUser.put(currUser, new HashSet<>());
+                    usersByEmail.put(currUser.getEmail(), new UserRecord(currUser));
                 } catch (InvalidUserException | InvalidEmailException e) {
                     System.out.println(e.getMessage() + ": " + line);
                     //continue
@@ -95,10 +207,8 @@ public class DatabaseImpl implements Database {
                 try {
                     DefaultPlaylist currPL = DefaultPlaylist.of(line, this);
 
-                    if (!playlistsByUser.containsKey(currPL.getOwner())) {
-                        playlistsByUser.put(currPL.getOwner(), new HashSet<>());
-                    }
-                    playlistsByUser.get(currPL.getOwner()).add(currPL);
+                    usersByEmail.computeIfAbsent(currPL.getOwner().getEmail(),
+                            email -> new UserRecord(currPL.getOwner())).addPlaylist(currPL);
                 } catch (InvalidPlaylistInfoException e) {
                     System.out.println(e.getMessage() + ": " + line);
                     //continue with the rest
@@ -109,66 +219,84 @@ public class DatabaseImpl implements Database {
         }
     }
 
-    @Override
-    public void registerUser(String email, String password) throws UserAlreadyExistsException, InvalidEmailException {
-        synchronized (playlistsByUser) {
-            User user = new User(email, password);
-            if (playlistsByUser.containsKey(user)) {
-                throw new UserAlreadyExistsException("User already exists" + user.toString());
+    private void loadJournal() {
+        try {
+            journal.replay(this::applyRecord);
+            journal.open();
+        } catch (IOException e) {
+            throw new RuntimeException("The journal could not be loaded", e);
+        }
+    }
+
+    private void applyRecord(JournalRecord record) {
+        // the snapshot may already contain a replayed record, so applying it again must be a no-op
+        try {
+            switch (record.type()) {
+                case REGISTER -> {
+                    User user = new User(record.field(0), record.field(1));
+                    usersByEmail.putIfAbsent(user.getEmail(), new UserRecord(user));
+                }
+                case CREATE_PLAYLIST -> {
+                    UserRecord owner = getUserRecord(record.field(0));
+                    owner.addPlaylist(new DefaultPlaylist(record.field(1), owner.user()));
+                }
+                case ADD_SONG -> {
+                    Playlist playlist = getPlaylist(record.field(1), record.field(0));
+                    Song song = getSong(record.field(2), record.field(3));
+                    if (!playlist.getSongs().contains(song)) {
+                        playlist.addSong(song);
+                    }
+                }
             }
-            playlistsByUser.put(user, new HashSet<>());
+        } catch (InvalidEmailException | NonExistingUserException | InvalidPlaylistInfoException
+                 | NonExistingPlaylistException | NonExistingSongException | SongAlreadyExistsException e) {
+            System.out.println(e.getMessage() + ": " + record.toLine());
+            //continue with the rest
+        }
+    }
+
+    @Override
+    public void registerUser(String email, String password)
+            throws UserAlreadyExistsException, InvalidEmailException, IOException {
+        User user = new User(email, password);
+        UserRecord record = new UserRecord(user);
+        if (usersByEmail.putIfAbsent(email, record) != null) {
+            throw new UserAlreadyExistsException("User already exists" + user.toString());
+        }
+        try {
+            journal.append(JournalRecord.register(email, password));
+        } catch (IOException e) {
+            // a change that is not in the journal would be lost on restart, so no one may see it
+            usersByEmail.remove(email, record);
+            throw e;
         }
     }
 
     @Override
     public void checkUser(String email, String password) throws NonExistingUserException, InvalidPasswordException {
-        synchronized (playlistsByUser) {
-            User user = checkUser(email);
-            if (user == null) {
-                throw new NonExistingUserException("There is no such a user: " + email);
-            }
-            if (user.checkPassword(password)) {
-                return;
-            }
+        User user = getUserRecord(email).user();
+        if (!user.checkPassword(password)) {
+            throw new InvalidPasswordException("Invalid password for user: " + email);
         }
-        throw new  InvalidPasswordException("Invalid password for user: " + email);
     }
 
     @Override
     public void checkUser(User user) throws NonExistingUserException, InvalidPasswordException {
-        synchronized (playlistsByUser) {
-            for (User curr : new ArrayList<>(playlistsByUser.keySet())) {
-                if (curr.getEmail().equals(user.getEmail())) {
-                    if (!curr.checkPassword(user)) {
-                        throw new InvalidPasswordException("Invalid password for user: " + user.getEmail());
-                    }
-                    return;
-                }
-            }
-            throw new NonExistingUserException("There is no such a user: " + user.getEmail());
+        User registered = getUserRecord(user.getEmail()).user();
+        if (!registered.checkPassword(user)) {
+            throw new InvalidPasswordException("Invalid password for user: " + user.getEmail());
         }
     }
 
     @Override
     public Collection<Song> searchSongs(String... filters) {
-        List<Song> snapshot;
-        synchronized (songs) {
-            if (filters == null || filters.length == 0) {
+        if (filters == null || filters.length == 0) {
+            synchronized (songs) {
                 return new ArrayList<>(songs);
             }
-            snapshot = new ArrayList<>(songs);
         }
 
-        return snapshot.stream().filter(song -> {
-            boolean check = true;
-            for (String filter : filters) {
-                String filterLower = filter.toLowerCase();
-                boolean matchesArtist = song.getArtist().toLowerCase().contains(filterLower);
-                boolean matchesTitle = song.getTitle().toLowerCase().contains(filterLower);
-                check &= (matchesArtist || matchesTitle);
-            }
-            return check;
-        }).toList();
+        return songSearchIndex.search(filters);
     }
 
     @Override
@@ -177,48 +305,44 @@ public class DatabaseImpl implements Database {
             return new ArrayList<>();
         }
 
-        List<Song> snapshot;
-        synchronized (songs) {
-            snapshot = new ArrayList<>(songs);
-        }
-        return snapshot.stream()
-                .sorted(Comparator.comparingInt(Song::getStreamsCnt).reversed())
-                .limit(limit)
-                .toList();
+        return streamsLeaderboard.top(limit);
     }
 
     @Override
     public void createPlaylist(String title, String owner)
-            throws NonExistingUserException, InvalidPlaylistInfoException {
-        synchronized (playlistsByUser) {
-            User user = checkUser(owner);
-            if (user == null) {
-                throw new NonExistingUserException("no such a user: " + owner);
-            }
-            playlistsByUser.putIfAbsent(user, new HashSet<>());
-            playlistsByUser.get(user).add(new DefaultPlaylist(title, user));
+            throws NonExistingUserException, InvalidPlaylistInfoException, IOException {
+        UserRecord record = getUserRecord(owner);
+        Playlist playlist = new DefaultPlaylist(title, record.user());
+        if (!record.addPlaylist(playlist)) {
+            return;
+        }
+        try {
+            journal.append(JournalRecord.createPlaylist(owner, title));
+        } catch (IOException e) {
+            record.removePlaylist(playlist);
+            throw e;
         }
     }
 
     @Override
     public void addSong(String playListTitle, String owner, String title, String artist)
-            throws SongAlreadyExistsException, NonExistingPlaylistException, NonExistingSongException {
-        synchronized (playlistsByUser) {
-            User user = checkUser(owner);
-            if (user == null) {
-                throw new NonExistingPlaylistException("No such a user: " + owner + "with playlist: " + playListTitle);
-            }
-            if (playlistsByUser.get(user) != null) {
-                for (Playlist playlist : playlistsByUser.get(user)) {
-                    if (playlist.getTitle().equalsIgnoreCase(playListTitle)) {
-                        Song song = getSong(title, artist);
-                        playlist.addSong(getSong(title, artist));
-                        return;
-                    }
-                }
-            }
+            throws SongAlreadyExistsException, NonExistingPlaylistException, NonExistingSongException, IOException {
+        UserRecord record = usersByEmail.get(owner);
+        if (record == null) {
+            throw new NonExistingPlaylistException("No such a user: " + owner + "with playlist: " + playListTitle);
+        }
+        Playlist playlist = record.getPlaylist(playListTitle);
+        if (playlist == null) {
+            throw new NonExistingPlaylistException("No such a playlist: " + playListTitle);
+        }
+        Song song = getSong(title, artist);
+        playlist.addSong(song);
+        try {
+            journal.append(JournalRecord.addSong(owner, playlist.getTitle(), song.getTitle(), song.getArtist()));
+        } catch (IOException e) {
+            playlist.removeSong(song);
+            throw e;
         }
-        throw new NonExistingPlaylistException("No such a playlist: " + playListTitle);
     }
 
     @Override
@@ -228,32 +352,24 @@ public class DatabaseImpl implements Database {
 
     @Override
     public Playlist getPlaylist(String title, String owner) throws NonExistingPlaylistException {
-        synchronized (playlistsByUser) {
-            User user = checkUser(owner);
-            if (user == null) {
-                throw new NonExistingPlaylistException("No such a user: " + owner + "with playlist: " + title);
-            }
-            if (playlistsByUser.get(user) != null) {
-                for (Playlist playlist : playlistsByUser.get(user)) {
-                    if (playlist.getTitle().equals(title)) {
-                        return playlist;
-                    }
-                }
-            }
+        UserRecord record = usersByEmail.get(owner);
+        if (record == null) {
+            throw new NonExistingPlaylistException("No such a user: " + owner + "with playlist: " + title);
         }
-        throw new NonExistingPlaylistException("No such a playlist: " + title);
+        Playlist playlist = record.getPlaylist(title);
+        if (playlist == null) {
+            throw new NonExistingPlaylistException("No such a playlist: " + title);
+        }
+        return playlist;
     }
 
     @Override
     public Song getSong(String title, String artist) throws NonExistingSongException {
-        synchronized (songs) {
-            for (Song song : songs) {
-                if (song.getTitle().equalsIgnoreCase(title) && song.getArtist().equalsIgnoreCase(artist)) {
-                    return song;
-                }
-            }
+        Song song = songsByKey.get(songKey(title, artist));
+        if (song == null) {
+            throw new NonExistingSongException("No such a song: " + title + " - " + artist);
         }
-        throw new NonExistingSongException("No such a song: " + title + " - " + artist);
+        return song;
     }
 
     @Override
@@ -267,17 +383,44 @@ public class DatabaseImpl implements Database {
         return getSong(split[0].strip(), split[1].strip());
     }
 
+    @Override
+    public Song getSong(int id) throws NonExistingSongException {
+        if (id < 0 || id >= songsById.size()) {
+            throw new NonExistingSongException("No song with id: " + id);
+        }
+        return songsById.get(id);
+    }
+
+    @Override
+    public int getSongId(Song song) throws NonExistingSongException {
+        Integer id = songIds.get(song);
+        if (id == null) {
+            throw new NonExistingSongException("No such a song: " + song);
+        }
+        return id;
+    }
+
     @Override
     public String getSongSrc() {
         return databaseDir + songsSrc;
     }
 
+    @Override
+    public long getCatalogueVersion() {
+        return catalogueVersion.get();
+    }
+
     @Override
     public void close() throws IOException {
-        saveCollectionToFile(playlistsByUser.keySet(), usersSrc);
+        // every mutation is already in the journal, the snapshot is rewritten by the compaction
+        journal.close();
+    }
+
+    private void writeSnapshot() throws IOException {
+        saveCollectionToFile(usersByEmail.values().stream().map(UserRecord::user).toList(), usersSrc);
 
-        Set<Playlist> allPlaylists = playlistsByUser.entrySet().stream()
-                .flatMap(entry -> entry.getValue().stream())
+        Set<Playlist> allPlaylists = usersByEmail.values().stream()
+                .flatMap(record -> record.playlistsByTitle().values().stream())
                 .collect(Collectors.toSet());
         saveCollectionToFile(allPlaylists, playlistsSrc);
     }
@@ -287,19 +430,29 @@ public class DatabaseImpl implements Database {
         if (!Files.exists(dir)) {
             Files.createDirectories(dir);
         }
-        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(Path.of(databaseDir + fileName))) {
+        Path target = Path.of(databaseDir + fileName);
+        Path tmp = Path.of(databaseDir + fileName + SNAPSHOT_TMP_SUFFIX);
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(tmp)) {
             for (Object ob : obs) {
                 bufferedWriter.write(ob.toString() + System.lineSeparator());
             }
         }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
-    private User checkUser(String email) {
-        for (User user : playlistsByUser.keySet()) {
-            if (user.getEmail().equals(email)) {
-                return user;
-            }
+    private static String playlistKey(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    private static String songKey(String title, String artist) {
+        return title.toLowerCase(Locale.ROOT) + '\n' + artist.toLowerCase(Locale.ROOT);
+    }
+
+    private UserRecord getUserRecord(String email) throws NonExistingUserException {
+        UserRecord record = usersByEmail.get(email);
+        if (record == null) {
+            throw new NonExistingUserException("There is no such a user: " + email);
         }
-        return null;
+        return record;
     }
 }
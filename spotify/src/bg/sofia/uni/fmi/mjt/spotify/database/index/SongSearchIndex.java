@@ -0,0 +1,120 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.index;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SongSearchIndex {
+    // every substring up to this length is a key, longer filters are matched through their grams
+    private static final int MAX_GRAM_LENGTH = 3;
+
+    private final Map<String, Set<IndexedSong>> postings;
+    private final Map<Song, IndexedSong> indexedSongs;
+
+    private record IndexedSong(Song song, String title, String artist) {
+        boolean matches(String filter) {
+            return title.contains(filter) || artist.contains(filter);
+        }
+    }
+
+    public SongSearchIndex() {
+        postings = new ConcurrentHashMap<>();
+        indexedSongs = new ConcurrentHashMap<>();
+    }
+
+    public void add(Song song) {
+        IndexedSong indexed = new IndexedSong(song, normalize(song.getTitle()), normalize(song.getArtist()));
+        if (indexedSongs.putIfAbsent(song, indexed) != null) {
+            return;
+        }
+        for (String gram : grams(indexed)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(indexed);
+        }
+    }
+
+    public void remove(Song song) {
+        IndexedSong indexed = indexedSongs.remove(song);
+        if (indexed == null) {
+            return;
+        }
+        for (String gram : grams(indexed)) {
+            postings.computeIfPresent(gram, (key, songs) -> {
+                songs.remove(indexed);
+                return songs.isEmpty() ? null : songs;
+            });
+        }
+    }
+
+    public Collection<Song> search(String... filters) {
+        List<String> normalizedFilters = Arrays.stream(filters)
+                .filter(filter -> filter != null && !filter.isEmpty())
+                .map(SongSearchIndex::normalize)
+                .distinct()
+                .toList();
+        if (normalizedFilters.isEmpty()) {
+            return indexedSongs.keySet().stream().toList();
+        }
+
+        List<Set<IndexedSong>> postingLists = new ArrayList<>();
+        for (String filter : normalizedFilters) {
+            for (String gram : filterGrams(filter)) {
+                Set<IndexedSong> postingList = postings.get(gram);
+                if (postingList == null) {
+                    return List.of();
+                }
+                postingLists.add(postingList);
+            }
+        }
+
+        // intersect starting from the shortest list, then verify the exact substring match
+        postingLists.sort(Comparator.comparingInt(Set::size));
+        Set<IndexedSong> candidates = new HashSet<>(postingLists.get(0));
+        for (int i = 1; i < postingLists.size() && !candidates.isEmpty(); ++i) {
+            candidates.retainAll(postingLists.get(i));
+        }
+
+        return candidates.stream()
+                .filter(candidate -> normalizedFilters.stream().allMatch(candidate::matches))
+                .map(IndexedSong::song)
+                .toList();
+    }
+
+    private static Set<String> grams(IndexedSong song) {
+        Set<String> result = new HashSet<>();
+        addGrams(song.title(), result);
+        addGrams(song.artist(), result);
+        return result;
+    }
+
+    private static void addGrams(String text, Set<String> result) {
+        for (int start = 0; start < text.length(); ++start) {
+            for (int length = 1; length <= MAX_GRAM_LENGTH && start + length <= text.length(); ++length) {
+                result.add(text.substring(start, start + length));
+            }
+        }
+    }
+
+    private static Set<String> filterGrams(String filter) {
+        if (filter.length() <= MAX_GRAM_LENGTH) {
+            return Set.of(filter);
+        }
+        Set<String> result = new HashSet<>();
+        for (int start = 0; start + MAX_GRAM_LENGTH <= filter.length(); ++start) {
+            result.add(filter.substring(start, start + MAX_GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.index;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StreamsLeaderboard {
+    private final NavigableSet<Entry> ranking;
+    private final Map<Song, Entry> entries;
+    private final AtomicLong sequence;
+
+    // the sequence number keeps songs with equal counts apart and in insertion order
+    private record Entry(int streams, long seq, Song song) {
+    }
+
+    private static final Comparator<Entry> BY_STREAMS_DESC = Comparator
+            .comparingInt(Entry::streams).reversed()
+            .thenComparingLong(Entry::seq);
+
+    public StreamsLeaderboard() {
+        ranking = new ConcurrentSkipListSet<>(BY_STREAMS_DESC);
+        entries = new ConcurrentHashMap<>();
+        sequence = new AtomicLong();
+    }
+
+    public void add(Song song) {
+        synchronized (song) {
+            if (entries.containsKey(song)) {
+                return;
+            }
+            Entry entry = new Entry(song.getStreamsCnt(), sequence.getAndIncrement(), song);
+            entries.put(song, entry);
+            ranking.add(entry);
+        }
+    }
+
+    public void remove(Song song) {
+        synchronized (song) {
+            Entry entry = entries.remove(song);
+            if (entry != null) {
+                ranking.remove(entry);
+            }
+        }
+    }
+
+    public void update(Song song) {
+        // the count is re-read under the song's lock, so racing updates converge to the latest value
+        synchronized (song) {
+            Entry old = entries.get(song);
+            int streams = song.getStreamsCnt();
+            if (old == null || old.streams() == streams) {
+                return;
+            }
+            Entry updated = new Entry(streams, old.seq(), song);
+            ranking.remove(old);
+            ranking.add(updated);
+            entries.put(song, updated);
+        }
+    }
+
+    public Collection<Song> top(int limit) {
+        // an update racing with the iteration may show a song twice, once per position
+        Set<Song> result = new LinkedHashSet<>();
+        Iterator<Entry> iterator = ranking.iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next().song());
+        }
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,263 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.journal;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+public class Journal implements Closeable {
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    private final Path journalFile;
+    private final Path compactingFile;
+    private final int compactionThreshold;
+    private final SnapshotWriter snapshotWriter;
+
+    private final BlockingQueue<PendingRecord> pendingRecords;
+    private final ExecutorService compactionExecutor;
+    private final Thread writerThread;
+
+    private FileChannel channel;
+    private int recordsSinceCompaction;
+    private volatile boolean compacting;
+    private boolean closed;
+    private boolean stopped;
+
+    private record PendingRecord(JournalRecord record, CompletableFuture<Void> committed) {
+    }
+
+    // file channels are closed on interrupt, so the writer is stopped with a marker instead
+    private static final PendingRecord END_OF_JOURNAL = new PendingRecord(null, null);
+
+    public Journal(Path journalFile, int compactionThreshold, SnapshotWriter snapshotWriter) {
+        this.journalFile = journalFile;
+        this.compactingFile = journalFile.resolveSibling(journalFile.getFileName() + COMPACTING_SUFFIX);
+        this.compactionThreshold = compactionThreshold;
+        this.snapshotWriter = snapshotWriter;
+
+        this.pendingRecords = new LinkedBlockingQueue<>();
+        this.compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Journal Compaction Thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writerThread = new Thread(this::writeRecords, "Journal Writer Thread");
+        this.writerThread.setDaemon(true);
+    }
+
+    public void replay(Consumer<JournalRecord> consumer) throws IOException {
+        // a segment left by an interrupted compaction is older than the current one
+        replayFile(compactingFile, consumer);
+        replayFile(journalFile, consumer);
+    }
+
+    private void replayFile(Path file, Consumer<JournalRecord> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    consumer.accept(JournalRecord.of(line));
+                    ++recordsSinceCompaction;
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    System.out.println("Skipping corrupted journal record: " + line);
+                }
+            }
+        }
+    }
+
+    public void open() throws IOException {
+        if (Files.exists(compactingFile)) {
+            // recovering from a crash during compaction, both segments are in memory by now
+            snapshotWriter.writeSnapshot();
+            Files.delete(compactingFile);
+        }
+        channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writerThread.start();
+    }
+
+    public void append(JournalRecord record) throws IOException {
+        PendingRecord pending = new PendingRecord(record, new CompletableFuture<>());
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("The journal is closed");
+            }
+            if (stopped) {
+                throw new IOException("The journal writer has stopped");
+            }
+            pendingRecords.add(pending);
+        }
+        try {
+            // the caller replies only after its record is on disk, so causally dependent records stay in order
+            pending.committed().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the journal", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not write to the journal", e.getCause());
+        }
+    }
+
+    private void writeRecords() {
+        List<PendingRecord> batch = new ArrayList<>();
+        boolean running = true;
+        try {
+            while (running) {
+                try {
+                    batch.add(pendingRecords.take());
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                pendingRecords.drainTo(batch);
+                running = !batch.remove(END_OF_JOURNAL);
+                if (!batch.isEmpty()) {
+                    try {
+                        commit(batch);
+                    } catch (RuntimeException e) {
+                        // the callers wait for their records without a timeout, so each one must be completed
+                        fail(batch, e);
+                    }
+                    batch.clear();
+                }
+            }
+        } finally {
+            stopWriter(batch);
+            closeChannel();
+        }
+    }
+
+    private void stopWriter(List<PendingRecord> batch) {
+        synchronized (this) {
+            stopped = true;
+            pendingRecords.drainTo(batch);
+        }
+        batch.remove(END_OF_JOURNAL);
+        fail(batch, new IOException("The journal writer has stopped"));
+    }
+
+    private static void fail(List<PendingRecord> batch, Throwable cause) {
+        batch.forEach(pending -> pending.committed().completeExceptionally(cause));
+    }
+
+    private void commit(List<PendingRecord> batch) {
+        StringBuilder lines = new StringBuilder();
+        for (PendingRecord pending : batch) {
+            lines.append(pending.record().toLine()).append(System.lineSeparator());
+        }
+        try {
+            ensureOpen();
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // one fsync for the whole batch (group commit)
+            channel.force(false);
+            batch.forEach(pending -> pending.committed().complete(null));
+        } catch (IOException e) {
+            fail(batch, e);
+            return;
+        }
+
+        recordsSinceCompaction += batch.size();
+        if (recordsSinceCompaction >= compactionThreshold && !compacting) {
+            startCompaction();
+        }
+    }
+
+    private void startCompaction() {
+        recordsSinceCompaction = 0;
+        if (Files.exists(compactingFile)) {
+            // the last snapshot failed, rotating now would replace a segment that no snapshot covers
+            scheduleSnapshot();
+            return;
+        }
+        try {
+            // every record of the rotated segment is already applied in memory, so the snapshot covers it
+            channel.close();
+            Files.move(journalFile, compactingFile, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // the next commit reopens the journal and fails its records if it cannot
+            System.out.println("Could not rotate the journal: " + e.getMessage());
+            return;
+        }
+        scheduleSnapshot();
+    }
+
+    private void scheduleSnapshot() {
+        compacting = true;
+        try {
+            compactionExecutor.submit(this::compact);
+        } catch (RejectedExecutionException e) {
+            // the journal is closing, the segment is snapshotted when it is opened again
+            compacting = false;
+        }
+    }
+
+    private void compact() {
+        try {
+            snapshotWriter.writeSnapshot();
+            Files.delete(compactingFile);
+        } catch (IOException e) {
+            // the segment stays on disk, the next compaction retries it before rotating again
+            System.out.println("Could not compact the journal: " + e.getMessage());
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Could not close the journal: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingRecords.add(END_OF_JOURNAL);
+        }
+        compactionExecutor.shutdown();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
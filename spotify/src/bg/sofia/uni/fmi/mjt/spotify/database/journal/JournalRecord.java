@@ -0,0 +1,91 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record JournalRecord(Type type, List<String> fields) {
+    private static final char SEPARATOR = '\t';
+    private static final char ESCAPE = '\\';
+
+    public enum Type {
+        REGISTER(2),
+        CREATE_PLAYLIST(2),
+        ADD_SONG(4);
+
+        private final int fieldsCnt;
+
+        Type(int fieldsCnt) {
+            this.fieldsCnt = fieldsCnt;
+        }
+    }
+
+    public JournalRecord {
+        if (type == null || fields == null) {
+            throw new NullPointerException("type and fields must not be null");
+        }
+        if (fields.size() != type.fieldsCnt) {
+            throw new IllegalArgumentException(type + " must have " + type.fieldsCnt + " fields");
+        }
+        fields = List.copyOf(fields);
+    }
+
+    public static JournalRecord register(String email, String password) {
+        return new JournalRecord(Type.REGISTER, List.of(email, password));
+    }
+
+    public static JournalRecord createPlaylist(String owner, String title) {
+        return new JournalRecord(Type.CREATE_PLAYLIST, List.of(owner, title));
+    }
+
+    public static JournalRecord addSong(String owner, String playlistTitle, String songTitle, String artist) {
+        return new JournalRecord(Type.ADD_SONG, List.of(owner, playlistTitle, songTitle, artist));
+    }
+
+    public String field(int idx) {
+        return fields.get(idx);
+    }
+
+    public static JournalRecord of(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < line.length(); ++i) {
+            char ch = line.charAt(i);
+            if (ch == ESCAPE && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                current.append(switch (escaped) {
+                    case 't' -> SEPARATOR;
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> escaped;
+                });
+            } else if (ch == SEPARATOR) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        tokens.add(current.toString());
+
+        Type type = Type.valueOf(tokens.get(0));
+        return new JournalRecord(type, tokens.subList(1, tokens.size()));
+    }
+
+    public String toLine() {
+        StringBuilder line = new StringBuilder(type.name());
+        for (String field : fields) {
+            line.append(SEPARATOR);
+            for (int i = 0; i < field.length(); ++i) {
+                char ch = field.charAt(i);
+                switch (ch) {
+                    case SEPARATOR -> line.append(ESCAPE).append('t');
+                    case '\n' -> line.append(ESCAPE).append('n');
+                    case '\r' -> line.append(ESCAPE).append('r');
+                    case ESCAPE -> line.append(ESCAPE).append(ESCAPE);
+                    default -> line.append(ch);
+                }
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.journal;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface SnapshotWriter {
+    void writeSnapshot() throws IOException;
+}
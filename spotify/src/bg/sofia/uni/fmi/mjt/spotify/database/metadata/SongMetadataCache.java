@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.metadata;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SongMetadataCache {
+    private static final String SEPARATOR = "\t";
+    private static final int FIELDS_CNT = 5;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path file;
+    private final Map<String, SongMetadata> entries;
+    private volatile boolean changed;
+
+    // size and mtime tell whether the cached header still describes the file on disk
+    public record SongMetadata(long size, long lastModified, String audioFormat, int frameSize) {
+    }
+
+    public SongMetadataCache(Path file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    public void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, FIELDS_CNT);
+                if (fields.length != FIELDS_CNT) {
+                    changed = true;
+                    continue;
+                }
+                try {
+                    entries.put(fields[0], new SongMetadata(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            fields[4], Integer.parseInt(fields[3])));
+                } catch (NumberFormatException e) {
+                    changed = true;
+                    //continue, the song is probed again
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("The song metadata cache could not be read: " + e.getMessage());
+            entries.clear();
+        }
+    }
+
+    public SongMetadata get(String fileName, long size, long lastModified) {
+        SongMetadata metadata = entries.get(fileName);
+        if (metadata == null || metadata.size() != size || metadata.lastModified() != lastModified) {
+            return null;
+        }
+        return metadata;
+    }
+
+    public void put(String fileName, SongMetadata metadata) {
+        if (fileName.contains(SEPARATOR) || fileName.contains("\n") || fileName.contains("\r")) {
+            return;
+        }
+        if (!metadata.equals(entries.put(fileName, metadata))) {
+            changed = true;
+        }
+    }
+
+    public void retainAll(Collection<String> fileNames) {
+        if (entries.keySet().retainAll(fileNames)) {
+            changed = true;
+        }
+    }
+
+    public void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+            for (Map.Entry<String, SongMetadata> entry : entries.entrySet()) {
+                SongMetadata metadata = entry.getValue();
+                writer.write(entry.getKey() + SEPARATOR + metadata.size() + SEPARATOR + metadata.lastModified() +
+                        SEPARATOR + metadata.frameSize() + SEPARATOR + metadata.audioFormat() + System.lineSeparator());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changed = false;
+    }
+}
@@ -100,6 +100,13 @@ public class DefaultPlaylist implements Playlist {
         }
     }
 
+    @Override
+    public void removeSong(Song song) {
+        synchronized (songs) {
+            songs.remove(song);
+        }
+    }
+
     public Collection<Song> getSongs() {
         synchronized (songs) {
             return new ArrayList<>(songs);
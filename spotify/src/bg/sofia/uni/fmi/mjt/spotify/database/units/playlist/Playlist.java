@@ -9,6 +9,8 @@ import java.util.Collection;
 public interface Playlist {
     void addSong(Song song) throws SongAlreadyExistsException;
 
+    void removeSong(Song song);
+
     Collection<Song> getSongs();
 
     String getTitle();
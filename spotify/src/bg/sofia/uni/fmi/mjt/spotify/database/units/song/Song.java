@@ -8,44 +8,102 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Song {
+    private static final int FRAME_RATE_IDX = 5;
+    private static final AtomicLong MAPPINGS = new AtomicLong();
+
     private final String title;
     private final String artist;
     private final String fileName;
     private final AtomicInteger streamsCnt;
     private final String audioFormat;
     private final int frameSize;
+    private final long bytesPerSecond;
+    private volatile StreamsListener streamsListener;
+
+    // the file mapped once for all of its streams, guarded by sourceLock
+    // the song itself is locked by the leaderboard, which must not wait for the file to be mapped
+    private final Object sourceLock = new Object();
+    private ByteBuffer mappedFile;
+    private String mappingName;
+    private int sourceRefsCnt;
 
     public void stream() {
         streamsCnt.incrementAndGet();
+        notifyStreamsChanged();
     }
 
     public void endStream() {
         streamsCnt.updateAndGet(current -> current > 0 ? current - 1 : 0);
+        notifyStreamsChanged();
     }
 
-    public int getStreamsCnt() {
-        return streamsCnt.get();
+    // a read only view of its own for every stream, the pages are shared through the page cache
+    public ByteBuffer openSource(Path file) throws IOException {
+        synchronized (sourceLock) {
+            if (mappedFile == null) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    if (channel.size() > Integer.MAX_VALUE) {
+                        throw new IOException("The song file is too large to be mapped: " + file);
+                    }
+                    // the mapping outlives the channel, no file descriptor is held while streaming
+                    mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                mappingName = fileName + "#" + MAPPINGS.incrementAndGet();
+            }
+            ++sourceRefsCnt;
+            return mappedFile.asReadOnlyBuffer();
+        }
     }
 
-    public static Song of(String folderName, String fileName) throws InvalidSongException {
-        if (fileName == null || fileName.isEmpty() ||
-                fileName.chars().filter(ch -> ch == '-').count() != 1 || fileName.contains(";")) {
-            throw new InvalidSongException("Invalid file name: " + fileName +
-                            "(must not be empty and must not contain more than one '-' and must not contain ';')");
+    public void closeSource() {
+        synchronized (sourceLock) {
+            if (sourceRefsCnt > 0 && --sourceRefsCnt == 0) {
+                // unmapped by the garbage collector once the views of the last streams are gone
+                mappedFile = null;
+                mappingName = null;
+            }
         }
-        int idxFormat = fileName.lastIndexOf('.');
-        if (idxFormat == -1 || !fileName.substring(idxFormat + 1).toLowerCase(Locale.ROOT).equals("wav")) {
-            throw new InvalidSongException("Invalid file name: " + fileName + "(must be wav)");
+    }
+
+    // unique for every mapping of the file, a file changed since the last one gets a new name
+    public String getSourceName() {
+        synchronized (sourceLock) {
+            return mappingName;
         }
+    }
 
-        String[] songInfo = fileName.substring(0, idxFormat).split("-");
-        if (songInfo.length != 2) {
-            throw new InvalidSongException(fileName + " is not a valid song file");
+    public int getSourceRefsCnt() {
+        synchronized (sourceLock) {
+            return sourceRefsCnt;
+        }
+    }
+
+    public void setStreamsListener(StreamsListener streamsListener) {
+        this.streamsListener = streamsListener;
+    }
+
+    private void notifyStreamsChanged() {
+        StreamsListener listener = streamsListener;
+        if (listener != null) {
+            listener.onStreamsChanged(this);
         }
+    }
+
+    public int getStreamsCnt() {
+        return streamsCnt.get();
+    }
+
+    public static Song of(String folderName, String fileName) throws InvalidSongException {
+        String[] songInfo = parseFileName(fileName);
 
         String audioFormatStr;
         int frameSize;
@@ -62,6 +120,30 @@ public class Song {
         return new Song(songInfo[0].strip(), songInfo[1].strip(), fileName, audioFormatStr, frameSize);
     }
 
+    // for an already probed file, e.g. from the metadata cache
+    public static Song of(String fileName, String audioFormat, int frameSize) throws InvalidSongException {
+        String[] songInfo = parseFileName(fileName);
+        return new Song(songInfo[0].strip(), songInfo[1].strip(), fileName, audioFormat, frameSize);
+    }
+
+    private static String[] parseFileName(String fileName) throws InvalidSongException {
+        if (fileName == null || fileName.isEmpty() ||
+                fileName.chars().filter(ch -> ch == '-').count() != 1 || fileName.contains(";")) {
+            throw new InvalidSongException("Invalid file name: " + fileName +
+                            "(must not be empty and must not contain more than one '-' and must not contain ';')");
+        }
+        int idxFormat = fileName.lastIndexOf('.');
+        if (idxFormat == -1 || !fileName.substring(idxFormat + 1).toLowerCase(Locale.ROOT).equals("wav")) {
+            throw new InvalidSongException("Invalid file name: " + fileName + "(must be wav)");
+        }
+
+        String[] songInfo = fileName.substring(0, idxFormat).split("-");
+        if (songInfo.length != 2) {
+            throw new InvalidSongException(fileName + " is not a valid song file");
+        }
+        return songInfo;
+    }
+
     private Song(String title, String artist, String fileName, String audioFormat, int frameSize)
             throws InvalidSongException {
         if (title == null || artist == null || fileName == null || audioFormat == null) {
@@ -73,6 +155,21 @@ public class Song {
         this.streamsCnt = new AtomicInteger(0);
         this.audioFormat = audioFormat;
         this.frameSize = frameSize;
+        this.bytesPerSecond = parseBytesPerSecond(audioFormat, frameSize);
+    }
+
+    // 0 when the format does not specify its frame rate
+    private static long parseBytesPerSecond(String audioFormat, int frameSize) {
+        String[] fields = audioFormat.split(" ");
+        if (fields.length <= FRAME_RATE_IDX || frameSize <= 0) {
+            return 0;
+        }
+        try {
+            float frameRate = Float.parseFloat(fields[FRAME_RATE_IDX]);
+            return frameRate > 0 ? (long) (frameRate * frameSize) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     public String getTitle() {
@@ -95,6 +192,10 @@ public class Song {
         return frameSize;
     }
 
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
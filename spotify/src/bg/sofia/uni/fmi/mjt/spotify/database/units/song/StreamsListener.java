@@ -0,0 +1,6 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.units.song;
+
+@FunctionalInterface
+public interface StreamsListener {
+    void onStreamsChanged(Song song);
+}
@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol;
+
+public enum Encoding {
+    TEXT((byte) 0),
+    BINARY((byte) 1);
+
+    private final byte code;
+
+    Encoding(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static Encoding of(byte code) {
+        for (Encoding encoding : values()) {
+            if (encoding.code == code) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown encoding: " + code);
+    }
+}
@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class Frame {
+    // type (1 byte) + payload length (4 bytes)
+    public static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES;
+    // tagged frames start their payload with the request id
+    public static final int REQUEST_ID_SIZE = Integer.BYTES;
+
+    private Frame() {
+    }
+
+    public static ByteBuffer header(FrameType type, int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(type.getCode()).putInt(length);
+        return header.flip();
+    }
+
+    public static ByteBuffer of(FrameType type, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.put(type.getCode()).putInt(payload.length).put(payload);
+        return frame.flip();
+    }
+
+    public static ByteBuffer response(String response) {
+        return of(FrameType.RESPONSE, response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ByteBuffer request(String request) {
+        return of(FrameType.REQUEST, request.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ByteBuffer taggedRequest(int requestId, String request) {
+        return tagged(FrameType.TAGGED_REQUEST, requestId, request);
+    }
+
+    public static ByteBuffer taggedResponse(int requestId, String response) {
+        return tagged(FrameType.TAGGED_RESPONSE, requestId, response);
+    }
+
+    public static ByteBuffer tagged(FrameType type, int requestId, String text) {
+        return tagged(type, requestId, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ByteBuffer tagged(FrameType type, int requestId, byte[] bytes) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + REQUEST_ID_SIZE + bytes.length);
+        frame.put(type.getCode()).putInt(REQUEST_ID_SIZE + bytes.length).putInt(requestId).put(bytes);
+        return frame.flip();
+    }
+
+    public static ByteBuffer hello(Encoding encoding) {
+        return of(FrameType.HELLO, new byte[] {encoding.getCode()});
+    }
+
+    public static ByteBuffer hello(Encoding encoding, AudioCodec codec) {
+        return of(FrameType.HELLO, new byte[] {encoding.getCode(), codec.getCode()});
+    }
+
+    public static ByteBuffer audioEnd() {
+        return header(FrameType.AUDIO_END, 0);
+    }
+}
@@ -0,0 +1,30 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol;
+
+public enum FrameType {
+    RESPONSE((byte) 0),
+    AUDIO((byte) 1),
+    AUDIO_END((byte) 2),
+    REQUEST((byte) 3),
+    TAGGED_REQUEST((byte) 4),
+    TAGGED_RESPONSE((byte) 5),
+    HELLO((byte) 6);
+
+    private final byte code;
+
+    FrameType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static FrameType of(byte code) {
+        for (FrameType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown frame type: " + code);
+    }
+}
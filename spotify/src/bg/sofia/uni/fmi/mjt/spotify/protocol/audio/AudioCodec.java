@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+public enum AudioCodec {
+    PCM((byte) 0, "pcm"),
+    LPC((byte) 1, "lpc");
+
+    private final byte code;
+    private final String name;
+
+    AudioCodec(byte code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static AudioCodec of(byte code) {
+        for (AudioCodec codec : values()) {
+            if (codec.code == code) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audio codec: " + code);
+    }
+
+    public static AudioCodec of(String name) {
+        for (AudioCodec codec : values()) {
+            if (codec.name.equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audio codec: " + name);
+    }
+}
@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+
+public class BitReader {
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+    private int bitPosition;
+
+    public BitReader(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    // at most 32 bits, unsigned
+    public long readBits(int bits) throws MalformedMessageException {
+        long value = 0;
+        for (int i = 0; i < bits; ++i) {
+            value = (value << 1) | readBit();
+        }
+        return value;
+    }
+
+    // two's complement in the given number of bits
+    public int readSigned(int bits) throws MalformedMessageException {
+        long value = readBits(bits);
+        return (int) (value << (Long.SIZE - bits) >> (Long.SIZE - bits));
+    }
+
+    // the zeros before the next one, or max when there are that many zeros
+    public int countZeros(int max) throws MalformedMessageException {
+        int zeros = 0;
+        while (zeros < max && readBit() == 0) {
+            ++zeros;
+        }
+        return zeros;
+    }
+
+    private int readBit() throws MalformedMessageException {
+        if (position >= end) {
+            throw new MalformedMessageException("Unexpected end of audio block");
+        }
+        int bit = (bytes[position] >>> (Byte.SIZE - 1 - bitPosition)) & 1;
+        if (++bitPosition == Byte.SIZE) {
+            bitPosition = 0;
+            ++position;
+        }
+        return bit;
+    }
+}
@@ -0,0 +1,47 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+import java.util.Arrays;
+
+// most significant bit first, the last byte is padded with zeros
+public class BitWriter {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] bytes;
+    private int length;
+    private long pending;
+    private int pendingBits;
+
+    public BitWriter() {
+        this.bytes = new byte[INITIAL_CAPACITY];
+    }
+
+    // the lowest bits of the value, at most 32 of them
+    public void writeBits(long value, int bits) {
+        pending = (pending << bits) | (value & ((1L << bits) - 1));
+        pendingBits += bits;
+        while (pendingBits >= Byte.SIZE) {
+            pendingBits -= Byte.SIZE;
+            put((byte) (pending >>> pendingBits));
+        }
+    }
+
+    public void writeZeros(int count) {
+        for (int left = count; left > 0; left -= Integer.SIZE) {
+            writeBits(0, Math.min(left, Integer.SIZE));
+        }
+    }
+
+    private void put(byte value) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        bytes[length++] = value;
+    }
+
+    public byte[] toByteArray() {
+        if (pendingBits > 0) {
+            writeBits(0, Byte.SIZE - pendingBits);
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+}
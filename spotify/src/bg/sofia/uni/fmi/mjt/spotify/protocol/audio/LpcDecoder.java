@@ -0,0 +1,116 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ESCAPED_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ESCAPE_ZEROS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.FRAMES_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.LEFT_SIDE;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.LENGTH_SIZE;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.MAX_ORDER;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ORDER_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.RICE_PARAMETER_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.STEREO_MODE_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.VERBATIM;
+
+// Turns a stream of blocks cut at arbitrary places back into 16 bit PCM
+public class LpcDecoder {
+    private static final int MAX_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    private final int channels;
+    private final boolean bigEndian;
+    private byte[] pending;
+
+    public LpcDecoder(int channels, boolean bigEndian) {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("There must be at least one channel");
+        }
+        this.channels = channels;
+        this.bigEndian = bigEndian;
+        this.pending = new byte[0];
+    }
+
+    // the PCM of every block completed by the chunk, an incomplete block waits for the next chunk
+    public byte[] decode(byte[] chunk) throws MalformedMessageException {
+        byte[] data = pending.length == 0 ? chunk : concat(pending, chunk);
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        int offset = 0;
+        while (data.length - offset >= LENGTH_SIZE) {
+            int length = ByteBuffer.wrap(data, offset, LENGTH_SIZE).getInt();
+            if (length <= 0 || length > MAX_BLOCK_SIZE) {
+                throw new MalformedMessageException("Invalid audio block length: " + length);
+            }
+            if (data.length - offset - LENGTH_SIZE < length) {
+                break;
+            }
+            decodeBlock(new BitReader(data, offset + LENGTH_SIZE, length), pcm);
+            offset += LENGTH_SIZE + length;
+        }
+        pending = Arrays.copyOfRange(data, offset, data.length);
+        return pcm.toByteArray();
+    }
+
+    private void decodeBlock(BitReader reader, ByteArrayOutputStream pcm) throws MalformedMessageException {
+        int frames = (int) reader.readBits(FRAMES_BITS);
+        boolean leftSide = channels == 2 && reader.readBits(STEREO_MODE_BITS) == LEFT_SIDE;
+        int[][] samples = new int[channels][];
+        for (int channel = 0; channel < channels; ++channel) {
+            samples[channel] = decodeChannel(reader, frames, LpcFormat.sampleBits(leftSide, channel));
+        }
+        if (leftSide) {
+            for (int i = 0; i < frames; ++i) {
+                samples[1][i] = samples[0][i] - samples[1][i];
+            }
+        }
+
+        byte[] block = new byte[frames * channels * Short.BYTES];
+        int position = 0;
+        for (int i = 0; i < frames; ++i) {
+            for (int channel = 0; channel < channels; ++channel) {
+                int sample = samples[channel][i];
+                byte high = (byte) (sample >> Byte.SIZE);
+                byte low = (byte) sample;
+                block[position++] = bigEndian ? high : low;
+                block[position++] = bigEndian ? low : high;
+            }
+        }
+        pcm.write(block, 0, block.length);
+    }
+
+    private static int[] decodeChannel(BitReader reader, int frames, int sampleBits)
+            throws MalformedMessageException {
+        int order = (int) reader.readBits(ORDER_BITS);
+        int[] samples = new int[frames];
+        if (order == VERBATIM) {
+            for (int i = 0; i < frames; ++i) {
+                samples[i] = reader.readSigned(sampleBits);
+            }
+            return samples;
+        }
+        if (order > MAX_ORDER || order > frames) {
+            throw new MalformedMessageException("Invalid predictor order: " + order);
+        }
+        int parameter = (int) reader.readBits(RICE_PARAMETER_BITS);
+        for (int i = 0; i < order; ++i) {
+            samples[i] = reader.readSigned(sampleBits);
+        }
+        for (int i = order; i < frames; ++i) {
+            int zeros = reader.countZeros(ESCAPE_ZEROS);
+            int residual = zeros == ESCAPE_ZEROS
+                    ? (int) reader.readBits(ESCAPED_BITS)
+                    : (zeros << parameter) | (int) reader.readBits(parameter);
+            samples[i] = LpcFormat.unzigzag(residual) + LpcFormat.predict(samples, i, order);
+        }
+        return samples;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+import java.nio.ByteBuffer;
+
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ESCAPED_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ESCAPE_ZEROS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.FRAMES_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.LEFT_SIDE;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.LENGTH_SIZE;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.MAX_FRAMES;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.MAX_ORDER;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.MAX_RICE_PARAMETER;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.INDEPENDENT;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.ORDER_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.RICE_PARAMETER_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.STEREO_MODE_BITS;
+import static bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcFormat.VERBATIM;
+
+// Lossless, FLAC style: a fixed polynomial predictor per channel and Rice coded residuals
+public final class LpcEncoder {
+
+    private LpcEncoder() {
+    }
+
+    // samples[channel][frame] of 16 bit audio, one self delimiting block
+    public static byte[] encodeBlock(int[][] samples, int frames) {
+        if (frames <= 0 || frames > MAX_FRAMES) {
+            throw new IllegalArgumentException("A block holds between 1 and " + MAX_FRAMES + " frames");
+        }
+        BitWriter writer = new BitWriter();
+        writer.writeBits(frames, FRAMES_BITS);
+
+        int[][] coded = samples;
+        boolean leftSide = false;
+        if (samples.length == 2) {
+            int[] side = new int[frames];
+            for (int i = 0; i < frames; ++i) {
+                side[i] = samples[0][i] - samples[1][i];
+            }
+            leftSide = bestOrderCost(side, frames) < bestOrderCost(samples[1], frames);
+            writer.writeBits(leftSide ? LEFT_SIDE : INDEPENDENT, STEREO_MODE_BITS);
+            coded = leftSide ? new int[][] {samples[0], side} : samples;
+        }
+        for (int channel = 0; channel < coded.length; ++channel) {
+            encodeChannel(writer, coded[channel], frames, LpcFormat.sampleBits(leftSide, channel));
+        }
+
+        byte[] payload = writer.toByteArray();
+        return ByteBuffer.allocate(LENGTH_SIZE + payload.length).putInt(payload.length).put(payload).array();
+    }
+
+    private static void encodeChannel(BitWriter writer, int[] samples, int frames, int sampleBits) {
+        int order = bestOrder(samples, frames);
+        int[] residuals = new int[frames - order];
+        for (int i = order; i < frames; ++i) {
+            residuals[i - order] = LpcFormat.zigzag(samples[i] - LpcFormat.predict(samples, i, order));
+        }
+        int parameter = bestRiceParameter(residuals);
+
+        if (RICE_PARAMETER_BITS + (long) order * sampleBits + riceBits(residuals, parameter)
+                >= (long) frames * sampleBits) {
+            writer.writeBits(VERBATIM, ORDER_BITS);
+            for (int i = 0; i < frames; ++i) {
+                writer.writeBits(samples[i], sampleBits);
+            }
+            return;
+        }
+        writer.writeBits(order, ORDER_BITS);
+        writer.writeBits(parameter, RICE_PARAMETER_BITS);
+        for (int i = 0; i < order; ++i) {
+            writer.writeBits(samples[i], sampleBits);
+        }
+        for (int residual : residuals) {
+            int quotient = residual >>> parameter;
+            if (quotient >= ESCAPE_ZEROS) {
+                writer.writeZeros(ESCAPE_ZEROS);
+                writer.writeBits(Integer.toUnsignedLong(residual), ESCAPED_BITS);
+            } else {
+                writer.writeZeros(quotient);
+                writer.writeBits(1, 1);
+                writer.writeBits(residual, parameter);
+            }
+        }
+    }
+
+    private static int bestOrder(int[] samples, int frames) {
+        if (frames <= MAX_ORDER) {
+            return 0;
+        }
+        int best = 0;
+        long bestCost = Long.MAX_VALUE;
+        for (int order = 0; order <= MAX_ORDER; ++order) {
+            long cost = orderCost(samples, frames, order);
+            if (cost < bestCost) {
+                best = order;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    private static long bestOrderCost(int[] samples, int frames) {
+        return orderCost(samples, frames, bestOrder(samples, frames));
+    }
+
+    // the sum of the absolute residuals, compared over the same frames for every order
+    private static long orderCost(int[] samples, int frames, int order) {
+        long cost = 0;
+        for (int i = Math.min(MAX_ORDER, frames); i < frames; ++i) {
+            cost += Math.abs(samples[i] - LpcFormat.predict(samples, i, order));
+        }
+        return cost;
+    }
+
+    private static int bestRiceParameter(int[] residuals) {
+        if (residuals.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int residual : residuals) {
+            sum += residual;
+        }
+        // about log2 of the mean is close to optimal, its neighbours are tried as well
+        long mean = Math.max(1, sum / residuals.length);
+        int estimate = Long.SIZE - 1 - Long.numberOfLeadingZeros(mean);
+        int best = 0;
+        long bestBits = Long.MAX_VALUE;
+        for (int parameter = Math.max(0, estimate - 1);
+             parameter <= Math.min(MAX_RICE_PARAMETER, estimate + 1); ++parameter) {
+            long bits = riceBits(residuals, parameter);
+            if (bits < bestBits) {
+                best = parameter;
+                bestBits = bits;
+            }
+        }
+        return best;
+    }
+
+    private static long riceBits(int[] residuals, int parameter) {
+        long bits = 0;
+        for (int residual : residuals) {
+            int quotient = residual >>> parameter;
+            bits += quotient >= ESCAPE_ZEROS ? ESCAPE_ZEROS + ESCAPED_BITS : quotient + 1 + parameter;
+        }
+        return bits;
+    }
+}
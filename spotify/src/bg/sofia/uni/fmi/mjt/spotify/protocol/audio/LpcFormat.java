@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+// A block: its payload length (big endian int) and the payload bits - the frames count, the stereo mode for two
+// channels, then for every channel the predictor order, the Rice parameter, the warm-up samples and the residuals,
+// or the verbatim marker and the samples
+final class LpcFormat {
+    static final int LENGTH_SIZE = Integer.BYTES;
+    static final int FRAMES_BITS = 16;
+    static final int MAX_FRAMES = (1 << FRAMES_BITS) - 1;
+    static final int STEREO_MODE_BITS = 1;
+    static final int INDEPENDENT = 0;
+    // the right channel is sent as left minus right, which is small for the usual correlated channels
+    static final int LEFT_SIDE = 1;
+    static final int ORDER_BITS = 3;
+    static final int MAX_ORDER = 4;
+    // noise is not predictable, its samples are sent as they are instead of growing by the Rice code
+    static final int VERBATIM = (1 << ORDER_BITS) - 1;
+    static final int RICE_PARAMETER_BITS = 5;
+    static final int MAX_RICE_PARAMETER = (1 << RICE_PARAMETER_BITS) - 1;
+    static final int SAMPLE_BITS = 16;
+    // the side channel is the difference of two samples, one bit wider
+    static final int SIDE_SAMPLE_BITS = SAMPLE_BITS + 1;
+    // a quotient this long is sent as the raw value instead, so a single spike does not cost thousands of bits
+    static final int ESCAPE_ZEROS = 32;
+    static final int ESCAPED_BITS = 32;
+
+    private LpcFormat() {
+    }
+
+    static int sampleBits(boolean leftSide, int channel) {
+        return leftSide && channel == 1 ? SIDE_SAMPLE_BITS : SAMPLE_BITS;
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> (Integer.SIZE - 1));
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // the fixed polynomial predictors of FLAC, the prediction for samples[i] from the order samples before it
+    static int predict(int[] samples, int i, int order) {
+        return switch (order) {
+            case 0 -> 0;
+            case 1 -> samples[i - 1];
+            case 2 -> 2 * samples[i - 1] - samples[i - 2];
+            case 3 -> 3 * samples[i - 1] - 3 * samples[i - 2] + samples[i - 3];
+            case 4 -> 4 * samples[i - 1] - 6 * samples[i - 2] + 4 * samples[i - 3] - samples[i - 4];
+            default -> throw new IllegalArgumentException("Unsupported predictor order: " + order);
+        };
+    }
+}
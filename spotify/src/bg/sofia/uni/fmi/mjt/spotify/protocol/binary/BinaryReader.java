@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryReader {
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION = 0x80;
+    private static final int VARINT_MAX_SHIFT = 28;
+    // the bits of the fifth byte that do not fit in an int, and its continuation bit
+    private static final int VARINT_LAST_BYTE_OVERFLOW = 0xF0;
+
+    private final ByteBuffer buffer;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public byte get() throws MalformedMessageException {
+        try {
+            return buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw new MalformedMessageException("Unexpected end of message", e);
+        }
+    }
+
+    public Opcode opcode() throws MalformedMessageException {
+        try {
+            return Opcode.of(get());
+        } catch (IllegalArgumentException e) {
+            throw new MalformedMessageException(e.getMessage(), e);
+        }
+    }
+
+    public int varint() throws MalformedMessageException {
+        int value = 0;
+        for (int shift = 0; shift <= VARINT_MAX_SHIFT; shift += VARINT_PAYLOAD_BITS) {
+            byte current = get();
+            if (shift == VARINT_MAX_SHIFT && (current & VARINT_LAST_BYTE_OVERFLOW) != 0) {
+                throw new MalformedMessageException("varint out of range");
+            }
+            value |= (current & VARINT_PAYLOAD_MASK) << shift;
+            if ((current & VARINT_CONTINUATION) == 0) {
+                if (value < 0) {
+                    throw new MalformedMessageException("varint out of range");
+                }
+                return value;
+            }
+        }
+        throw new MalformedMessageException("varint is too long");
+    }
+
+    public String string() throws MalformedMessageException {
+        int length = varint();
+        if (length > buffer.remaining()) {
+            throw new MalformedMessageException("String of " + length + " bytes exceeds the message");
+        }
+        // decoded straight from the frame, without an intermediate copy
+        String value = buffer.hasArray()
+                ? new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8)
+                : StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+}
@@ -0,0 +1,65 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryWriter {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION = 0x80;
+
+    private ByteBuffer buffer;
+
+    public BinaryWriter() {
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    public BinaryWriter opcode(Opcode opcode) {
+        return put(opcode.getCode());
+    }
+
+    public BinaryWriter put(byte value) {
+        ensureCapacity(Byte.BYTES);
+        buffer.put(value);
+        return this;
+    }
+
+    // unsigned LEB128, small numbers take a single byte
+    public BinaryWriter varint(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("varint must not be negative: " + value);
+        }
+        ensureCapacity(Integer.BYTES + 1);
+        while ((value & ~VARINT_PAYLOAD_MASK) != 0) {
+            buffer.put((byte) ((value & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION));
+            value >>>= VARINT_PAYLOAD_BITS;
+        }
+        buffer.put((byte) value);
+        return this;
+    }
+
+    public BinaryWriter string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        byte[] result = new byte[buffer.position()];
+        buffer.get(0, result);
+        return result;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (buffer.remaining() >= needed) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+}
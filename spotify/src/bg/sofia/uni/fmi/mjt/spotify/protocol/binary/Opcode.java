@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary;
+
+public enum Opcode {
+    REGISTER((byte) 1),
+    LOGIN((byte) 2),
+    DISCONNECT((byte) 3),
+    SEARCH((byte) 4),
+    TOP((byte) 5),
+    CREATE_PLAYLIST((byte) 6),
+    ADD_SONG_TO((byte) 7),
+    SHOW_PLAYLIST((byte) 8),
+    PLAY((byte) 9),
+    STOP((byte) 10);
+
+    private static final Opcode[] BY_CODE = new Opcode[STOP.code + 1];
+
+    static {
+        for (Opcode opcode : values()) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    private final byte code;
+
+    Opcode(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static Opcode of(byte code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown opcode: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
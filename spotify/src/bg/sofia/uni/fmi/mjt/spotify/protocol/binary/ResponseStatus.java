@@ -0,0 +1,29 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary;
+
+public enum ResponseStatus {
+    // a message string follows
+    OK((byte) 0),
+    // a message string follows
+    ERROR((byte) 1),
+    // a varint count follows, then per song: varint id, title, artist, varint streams
+    SONGS((byte) 2);
+
+    private final byte code;
+
+    ResponseStatus(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static ResponseStatus of(byte code) {
+        for (ResponseStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown response status: " + code);
+    }
+}
@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions;
+
+public class MalformedMessageException extends Exception {
+    public MalformedMessageException(String message) {
+        super(message);
+    }
+
+    public MalformedMessageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
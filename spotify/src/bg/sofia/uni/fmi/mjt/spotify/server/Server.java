@@ -2,18 +2,27 @@ package bg.sofia.uni.fmi.mjt.spotify.server;
 
 import bg.sofia.uni.fmi.mjt.spotify.database.Database;
 import bg.sofia.uni.fmi.mjt.spotify.database.DatabaseImpl;
-import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingUserException;
-import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
-import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.cache.ChunkCache;
+import bg.sofia.uni.fmi.mjt.spotify.server.cache.ResponseCache;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandExecutor;
-import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandFactory;
-import bg.sofia.uni.fmi.mjt.spotify.server.portsmanager.PortsManager;
-import bg.sofia.uni.fmi.mjt.spotify.server.portsmanager.exceptions.NotLoggedUserException;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ConnectionLimiter;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ConnectionLimits;
+import bg.sofia.uni.fmi.mjt.spotify.server.dispatcher.CommandDispatcher;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.AsyncLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.LogLevel;
+import bg.sofia.uni.fmi.mjt.spotify.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.spotify.server.reactor.Reactor;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.SessionManager;
+import bg.sofia.uni.fmi.mjt.spotify.server.transcoder.LpcAudioEncoder;
+import bg.sofia.uni.fmi.mjt.spotify.server.transcoder.Transcoder;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -22,50 +31,94 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class Server implements Runnable {
     private static final String SERVER_ERR_LOG = "project/spotify/resources/server/serverErrLog.txt";
-    private static final int STREAMING_PORT = 7777;
+    private static final String TRANSCODED_DIR = "project/spotify/resources/server/transcoded/";
     private static final int PORT = 6666;
     private static final String SERVER_HOST = "localhost";
-    private static final int BUFFER_SIZE = 1024;
-
-    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private static final int REACTORS_CNT = Runtime.getRuntime().availableProcessors();
+    private static final int COMMAND_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int COMMAND_QUEUE_CAPACITY = 1024;
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final int LOG_BUFFER_CAPACITY = 8192;
+    private static final long RESPONSE_CACHE_BYTES = 16 * 1024 * 1024;
+    private static final long CHUNK_CACHE_BYTES = 128 * 1024 * 1024;
+    private static final String LOG_LEVEL_COMMAND = "log-level";
+    private static final String LOG_SAMPLE_COMMAND = "log-sample";
+    private static final String STATS_COMMAND = "stats";
+    private static final String TOO_MANY_CONNECTIONS = "Too many connections, try again later" + System.lineSeparator();
+    private static final String METRICS_BEAN_NAME = "bg.sofia.uni.fmi.mjt.spotify:type=ServerMetrics";
     private Selector selector;
 
     private final Database database;
-    private final PortsManager portsManager;
+    private final SessionManager sessionManager;
     private final CommandExecutor commandExecutor;
-    private boolean terminated = false;
+    private final CommandDispatcher commandDispatcher;
+    private final ResponseCache responseCache;
+    private final ChunkCache chunkCache;
+    private final Transcoder transcoder;
+    private final ServerMetrics metrics;
+    private final ConnectionLimits connectionLimits;
+    private final ConnectionLimiter connectionLimiter;
+    private final Reactor[] reactors;
+    private final Thread[] reactorThreads;
+    private volatile AsyncLogger logger;
+    private int nextReactor = 0;
+    private volatile boolean terminated = false;
 
     public Server(Database database, CommandExecutor commandExecutor) {
+        this(database, commandExecutor, ConnectionLimits.DEFAULT);
+    }
+
+    public Server(Database database, CommandExecutor commandExecutor, ConnectionLimits connectionLimits) {
         this.database = database;
+        this.connectionLimits = connectionLimits;
+        this.connectionLimiter = new ConnectionLimiter(connectionLimits);
         this.commandExecutor = commandExecutor;
-        this.portsManager = new PortsManager(STREAMING_PORT, database);
+        this.sessionManager = new SessionManager(database);
+        this.commandDispatcher = new CommandDispatcher(COMMAND_THREADS, COMMAND_QUEUE_CAPACITY);
+        this.responseCache = new ResponseCache(RESPONSE_CACHE_BYTES);
+        this.chunkCache = new ChunkCache(CHUNK_CACHE_BYTES);
+        this.transcoder = new Transcoder(Path.of(TRANSCODED_DIR), List.of(new LpcAudioEncoder()));
+        this.metrics = new ServerMetrics(this);
+        this.reactors = new Reactor[REACTORS_CNT];
+        this.reactorThreads = new Thread[REACTORS_CNT];
     }
 
     @Override
     public void run() {
         try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open(); database;
-             PrintWriter errWriter = createErrWriter()) {
+             PrintWriter errWriter = createErrWriter();
+             AsyncLogger asyncLogger = createLogger(errWriter); commandDispatcher; transcoder) {
+            logger = asyncLogger;
             System.out.println("Server started on port " + PORT);
             selector = Selector.open();
             setUpServerSocketChannel(serverSocketChannel, selector);
+            startReactors(asyncLogger);
+            registerMetricsBean(asyncLogger);
 
-            while (!terminated) {
-                if (selector.select() == 0) continue;
-                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
-                while (keyIterator.hasNext()) {
-                    SelectionKey key = keyIterator.next();
-                    if (key.isReadable()) {
-                        handleReadable(key, errWriter);
-                    } else if (key.isAcceptable()) {
-                        handleAcceptable(key);
+            // this thread only accepts, the reads and writes are spread over the reactors
+            try {
+                while (!terminated) {
+                    selector.select();
+                    Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                    while (keyIterator.hasNext()) {
+                        SelectionKey key = keyIterator.next();
+                        keyIterator.remove();
+                        if (key.isValid() && key.isAcceptable()) {
+                            handleAcceptable(key);
+                        }
                     }
-                    keyIterator.remove();
                 }
+            } finally {
+                stopReactors();
+                unregisterMetricsBean();
             }
         } catch (IOException e) {
             System.out.println("Server error: " + e.getMessage());
@@ -77,99 +130,94 @@ public class Server implements Runnable {
                 StandardOpenOption.CREATE, StandardOpenOption.APPEND));
     }
 
-    private void handleAcceptable(SelectionKey key) throws IOException {
-        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
-        SocketChannel accept = sockChannel.accept();
-        accept.configureBlocking(false);
-        accept.register(selector, SelectionKey.OP_READ);
+    private AsyncLogger createLogger(PrintWriter errWriter) {
+        // System.out is not closed with the logger
+        return new AsyncLogger(LOG_BUFFER_CAPACITY, LogLevel.INFO,
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), errWriter);
     }
 
-    private void handleReadable(SelectionKey key, PrintWriter errWriter) {
-        SocketChannel clientChannel = (SocketChannel) key.channel();
-        try {
-            String clientInput = getClientInput(clientChannel);
-            if (clientInput == null) {
-                portsManager.logOut((User) key.attachment());
-                return;
-            }
-            logRequest((User) key.attachment(), clientInput);
-            String output = executeCommand(clientInput, key, errWriter);
-            writeClientOutput(clientChannel, output);
-
-        } catch (IOException e) {
-            handleConnectionReset(e, key, clientChannel);
-        } catch (NotLoggedUserException | NonExistingUserException e) {
-            // ignore - user has disconnected
+    private void startReactors(AsyncLogger asyncLogger) throws IOException {
+        for (int i = 0; i < REACTORS_CNT; ++i) {
+            reactors[i] = new Reactor(this, commandExecutor, asyncLogger);
+            reactorThreads[i] = new Thread(reactors[i], "Reactor Thread " + i);
+            reactorThreads[i].start();
         }
     }
 
-    private void logRequest(User user, String input) {
-        if (user == null) {
-            System.out.println("An unknown user requested <" + input + ">");
-        } else {
-            System.out.println("User: " + user + " requested <" + input + ">");
+    private void registerMetricsBean(AsyncLogger asyncLogger) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(METRICS_BEAN_NAME));
+        } catch (JMException e) {
+            // the metrics are still available through the console
+            asyncLogger.log(LogLevel.WARN, "jmx-unavailable", null, e.getMessage());
         }
     }
 
-    private String executeCommand(String clientInput, SelectionKey key, PrintWriter errWriter) {
+    private void unregisterMetricsBean() {
         try {
-            Command command = CommandFactory.create(clientInput, (User) key.attachment(), this);
-            CommandExecutor.checkCommand(command, key);
-            String output = commandExecutor.execute(command);
-            CommandExecutor.checkLogin(command, key);
-            System.out.println(output);
-            return output;
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-            errWriter.println(e.getMessage() + Arrays.toString(e.getStackTrace()));
-            errWriter.flush();
-            return e.getMessage() + System.lineSeparator();
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(METRICS_BEAN_NAME));
+        } catch (JMException ignored) {
+            //never registered
         }
     }
 
-    private void handleConnectionReset(IOException e, SelectionKey key, SocketChannel channel) {
-        if (e.getMessage().contains("Connection reset")) {
+    private void stopReactors() {
+        for (int i = 0; i < REACTORS_CNT; ++i) {
+            if (reactors[i] != null) {
+                reactors[i].terminate();
+            }
+        }
+        for (int i = 0; i < REACTORS_CNT; ++i) {
+            if (reactorThreads[i] == null) {
+                continue;
+            }
             try {
-                portsManager.logOut((User) key.attachment());
-                channel.close();
-                key.cancel();
-            } catch (Exception ex) {
-                // ignore
+                reactorThreads[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-        } else {
-            System.out.println("Error processing client request: " + e.getMessage());
         }
     }
 
-    private void setUpServerSocketChannel(ServerSocketChannel channel, Selector selector) throws IOException {
-        channel.bind(new InetSocketAddress(SERVER_HOST, PORT));
-        channel.configureBlocking(false);
-        channel.register(selector, SelectionKey.OP_ACCEPT);
+    private void handleAcceptable(SelectionKey key) throws IOException {
+        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
+        SocketChannel accept;
+        while ((accept = sockChannel.accept()) != null) {
+            InetAddress address = remoteAddressOf(accept);
+            if (address == null || !connectionLimiter.tryAcquire(address)) {
+                metrics.connectionRejected();
+                reject(accept);
+                continue;
+            }
+            reactors[nextReactor].register(accept, address);
+            nextReactor = (nextReactor + 1) % REACTORS_CNT;
+        }
     }
 
-    private String getClientInput(SocketChannel clientChannel) throws IOException {
-        buffer.clear();
-
-        int readBytes = clientChannel.read(buffer);
-        if (readBytes < 0) {
-            clientChannel.close();
+    private static InetAddress remoteAddressOf(SocketChannel channel) {
+        try {
+            return ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+        } catch (IOException e) {
+            // the client is already gone
             return null;
         }
-
-        buffer.flip();
-
-        byte[] clientInputBytes = new byte[buffer.remaining()];
-        buffer.get(clientInputBytes);
-
-        return new String(clientInputBytes, StandardCharsets.UTF_8);
     }
 
-    private void writeClientOutput(SocketChannel clientChannel, String output) throws IOException {
-        buffer.clear();
-        buffer.put(output.getBytes());
-        buffer.flip();
+    private void reject(SocketChannel channel) {
+        try (channel) {
+            // best effort, a client that cannot take a few bytes right away does not get the reason
+            channel.configureBlocking(false);
+            channel.write(Frame.response(TOO_MANY_CONNECTIONS));
+        } catch (IOException ignored) {
+            //the connection is closed anyway
+        }
+    }
 
-        clientChannel.write(buffer);
+    private void setUpServerSocketChannel(ServerSocketChannel channel, Selector selector) throws IOException {
+        channel.bind(new InetSocketAddress(SERVER_HOST, PORT), ACCEPT_BACKLOG);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_ACCEPT);
     }
 
     public void terminate() {
@@ -183,8 +231,60 @@ public class Server implements Runnable {
         return database;
     }
 
-    public PortsManager getPortsManager() {
-        return portsManager;
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    public CommandDispatcher getCommandDispatcher() {
+        return commandDispatcher;
+    }
+
+    public ConnectionLimits getConnectionLimits() {
+        return connectionLimits;
+    }
+
+    public ConnectionLimiter getConnectionLimiter() {
+        return connectionLimiter;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public ChunkCache getChunkCache() {
+        return chunkCache;
+    }
+
+    public Transcoder getTranscoder() {
+        return transcoder;
+    }
+
+    // null until the server is started
+    public AsyncLogger getLogger() {
+        return logger;
+    }
+
+    private static void configureLogger(Server server, String input) {
+        AsyncLogger logger = server.getLogger();
+        String[] fields = input.strip().split("\\s+");
+        if (logger == null || fields.length != 2) {
+            System.out.println("Usage: " + LOG_LEVEL_COMMAND + " <debug|info|warn|error|off> or "
+                    + LOG_SAMPLE_COMMAND + " <one in n requests>");
+            return;
+        }
+        try {
+            if (fields[0].equalsIgnoreCase(LOG_LEVEL_COMMAND)) {
+                logger.setLevel(LogLevel.valueOf(fields[1].toUpperCase()));
+            } else {
+                logger.setSampleRate(Integer.parseInt(fields[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid value: " + fields[1]);
+        }
     }
 
     public static void main(String[] args) {
@@ -201,6 +301,14 @@ public class Server implements Runnable {
                     server.terminate();
                     break;
                 }
+                if (input.strip().equalsIgnoreCase(STATS_COMMAND)) {
+                    System.out.print(server.getMetrics().getReport());
+                    continue;
+                }
+                String lowerInput = input.strip().toLowerCase();
+                if (lowerInput.startsWith(LOG_LEVEL_COMMAND) || lowerInput.startsWith(LOG_SAMPLE_COMMAND)) {
+                    configureLogger(server, input);
+                }
             }
         }
 
@@ -0,0 +1,242 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed size chunks of the song files in direct buffers, shared by every stream.
+// Window TinyLFU: new chunks enter a small LRU window, and a chunk leaving the window replaces the least
+// recently used chunk of the main segmented LRU only when it has been requested more often.
+public class ChunkCache {
+    public static final int CHUNK_SIZE = 64 * 1024;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final int maxChunks;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+
+    // insertion order, moved to the end on every hit, so the first entry is the least recently used
+    private final Map<Key, Chunk> window;
+    private final Map<Key, Chunk> probation;
+    private final Map<Key, Chunk> protectedChunks;
+    private final FrequencySketch sketch;
+    private final Deque<ByteBuffer> freeBuffers;
+    private int allocatedCnt;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    private record Key(String fileName, long index) {
+    }
+
+    @FunctionalInterface
+    public interface ChunkLoader {
+        // fills the buffer with the chunk at the given offset of the file, a short chunk ends the file
+        void load(ByteBuffer target, long offset) throws IOException;
+    }
+
+    // pinned while a stream writes from it, the buffer is reused only once the chunk is evicted and unpinned
+    public static final class Chunk {
+        private final Key key;
+        private final ByteBuffer buffer;
+        private int pins;
+        private boolean loaded;
+        private boolean evicted;
+
+        private Chunk(Key key, ByteBuffer buffer) {
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        // a view of its own for every caller, positioned at the start of the chunk
+        public ByteBuffer data() {
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    public ChunkCache(long maxBytes) {
+        this.maxChunks = (int) Math.max(1, maxBytes / CHUNK_SIZE);
+        this.windowMax = Math.max(1, maxChunks * WINDOW_PERCENT / 100);
+        this.mainMax = maxChunks - windowMax;
+        this.protectedMax = mainMax * PROTECTED_PERCENT / 100;
+        this.window = new LinkedHashMap<>();
+        this.probation = new LinkedHashMap<>();
+        this.protectedChunks = new LinkedHashMap<>();
+        this.sketch = new FrequencySketch(maxChunks);
+        this.freeBuffers = new ArrayDeque<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    // the chunk pinned for the caller, null when it is being loaded by another stream or there is no buffer
+    // left for it; the caller reads the file itself then
+    public Chunk acquire(String fileName, long index, ChunkLoader loader) throws IOException {
+        Key key = new Key(fileName, index);
+        Chunk chunk;
+        synchronized (this) {
+            sketch.increment(key);
+            chunk = find(key);
+            if (chunk != null) {
+                if (!chunk.loaded) {
+                    misses.increment();
+                    return null;
+                }
+                hits.increment();
+                ++chunk.pins;
+                return chunk;
+            }
+            misses.increment();
+            chunk = admit(key);
+            if (chunk == null) {
+                return null;
+            }
+        }
+
+        // the disk is read outside of the lock, the other streams keep being served meanwhile
+        try {
+            chunk.buffer.clear();
+            loader.load(chunk.buffer, index * CHUNK_SIZE);
+            chunk.buffer.flip();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                remove(chunk);
+                unpin(chunk);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            chunk.loaded = true;
+        }
+        return chunk;
+    }
+
+    public synchronized void release(Chunk chunk) {
+        unpin(chunk);
+    }
+
+    private Chunk find(Key key) {
+        Chunk chunk = window.remove(key);
+        if (chunk != null) {
+            window.put(key, chunk);
+            return chunk;
+        }
+        chunk = protectedChunks.remove(key);
+        if (chunk != null) {
+            protectedChunks.put(key, chunk);
+            return chunk;
+        }
+        chunk = probation.remove(key);
+        if (chunk != null) {
+            // a second hit while on probation promotes the chunk
+            protectedChunks.put(key, chunk);
+            if (protectedChunks.size() > protectedMax) {
+                Chunk demoted = pollEldest(protectedChunks);
+                probation.put(demoted.key, demoted);
+            }
+        }
+        return chunk;
+    }
+
+    private Chunk admit(Key key) {
+        if (window.size() >= windowMax) {
+            evictFromWindow();
+        }
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null && allocatedCnt < maxChunks) {
+            buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            ++allocatedCnt;
+        }
+        if (buffer == null) {
+            // every buffer is pinned by the streams of evicted chunks
+            return null;
+        }
+        Chunk chunk = new Chunk(key, buffer);
+        chunk.pins = 1;
+        window.put(key, chunk);
+        return chunk;
+    }
+
+    private void evictFromWindow() {
+        Chunk candidate = pollEldest(window);
+        if (probation.size() + protectedChunks.size() < mainMax) {
+            probation.put(candidate.key, candidate);
+            return;
+        }
+        Map<Key, Chunk> victims = probation.isEmpty() ? protectedChunks : probation;
+        if (victims.isEmpty()) {
+            evict(candidate);
+            return;
+        }
+        Chunk victim = victims.values().iterator().next();
+        if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            victims.remove(victim.key);
+            evict(victim);
+            probation.put(candidate.key, candidate);
+        } else {
+            evict(candidate);
+        }
+    }
+
+    private void remove(Chunk chunk) {
+        if (window.remove(chunk.key, chunk) || probation.remove(chunk.key, chunk)
+                || protectedChunks.remove(chunk.key, chunk)) {
+            chunk.evicted = true;
+        }
+    }
+
+    private void evict(Chunk chunk) {
+        evictions.increment();
+        chunk.evicted = true;
+        if (chunk.pins == 0) {
+            freeBuffers.push(chunk.buffer);
+        }
+    }
+
+    private void unpin(Chunk chunk) {
+        if (--chunk.pins == 0 && chunk.evicted) {
+            freeBuffers.push(chunk.buffer);
+        }
+    }
+
+    private static Chunk pollEldest(Map<Key, Chunk> chunks) {
+        Iterator<Chunk> eldest = chunks.values().iterator();
+        Chunk chunk = eldest.next();
+        eldest.remove();
+        return chunk;
+    }
+
+    public synchronized int getChunksCnt() {
+        return window.size() + probation.size() + protectedChunks.size();
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return (long) allocatedCnt * CHUNK_SIZE;
+    }
+
+    public long getHitsCnt() {
+        return hits.sum();
+    }
+
+    public long getMissesCnt() {
+        return misses.sum();
+    }
+
+    public long getEvictionsCnt() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hitsCnt = hits.sum();
+        long total = hitsCnt + misses.sum();
+        return total == 0 ? 0 : (double) hitsCnt / total;
+    }
+}
@@ -0,0 +1,72 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+// A count-min sketch of 4 bit counters, halved periodically so that old popularity fades (TinyLFU)
+class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int COUNTERS_PER_LONG = 16;
+    private static final long MAX_COUNT = 15;
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int SAMPLE_FACTOR = 10;
+    private static final long[] SEEDS = {
+        0x97cb_3127_9e37_79b9L, 0xc2b2_ae3d_27d4_eb4fL, 0x1656_67b1_9e37_79f9L, 0x85eb_ca77_c2b2_ae63L
+    };
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int counters = Integer.highestOneBit(Math.max(expectedEntries, 1) * 2 - 1) * 2;
+        this.table = new long[Math.max(1, counters * DEPTH / COUNTERS_PER_LONG)];
+        this.sampleSize = Math.max(expectedEntries, 1) * SAMPLE_FACTOR;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        long frequency = MAX_COUNT;
+        for (int i = 0; i < DEPTH; ++i) {
+            long slot = slotOf(hash, i);
+            frequency = Math.min(frequency, counterAt(slot));
+        }
+        return (int) frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; ++i) {
+            long slot = slotOf(hash, i);
+            if (counterAt(slot) < MAX_COUNT) {
+                table[(int) (slot >>> 4)] += 1L << ((slot & 15) << 2);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    // the index of the long in the upper bits and of the counter inside it in the lowest 4 bits
+    private long slotOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h ^= h >>> 32;
+        long counters = (long) table.length * COUNTERS_PER_LONG;
+        return (h & Long.MAX_VALUE) % counters;
+    }
+
+    private long counterAt(long slot) {
+        return (table[(int) (slot >>> 4)] >>> ((slot & 15) << 2)) & MAX_COUNT;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e37_79b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,104 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Encoded replies ready to be framed, evicted least recently used first once they exceed the size limit
+public class ResponseCache {
+    public static final long NO_TTL = Long.MAX_VALUE;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final Map<Key, Entry> entries;
+    private long sizeBytes;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private record Key(Encoding encoding, String command) {
+    }
+
+    private record Entry(byte[] response, long catalogueVersion, long createdAtNanos, long ttlNanos) {
+        long size(Key key) {
+            return response.length + key.command().length() + ENTRY_OVERHEAD;
+        }
+    }
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        // access order, the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // null when there is no reply cached for this catalogue version or it has expired
+    public byte[] get(Encoding encoding, String command, long catalogueVersion) {
+        Key key = new Key(encoding, command);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.catalogueVersion() == catalogueVersion
+                    && System.nanoTime() - entry.createdAtNanos() < entry.ttlNanos()) {
+                hits.increment();
+                return entry.response();
+            }
+            if (entry != null) {
+                remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(Encoding encoding, String command, byte[] response, long catalogueVersion, long ttlNanos) {
+        Key key = new Key(encoding, command);
+        Entry entry = new Entry(response, catalogueVersion, System.nanoTime(), ttlNanos);
+        if (entry.size(key) > maxBytes) {
+            return;
+        }
+
+        synchronized (entries) {
+            remove(key);
+            entries.put(key, entry);
+            sizeBytes += entry.size(key);
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (sizeBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Key, Entry> evicted = eldest.next();
+                sizeBytes -= evicted.getValue().size(evicted.getKey());
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            sizeBytes -= removed.size(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            sizeBytes = 0;
+        }
+    }
+
+    public long getSizeBytes() {
+        synchronized (entries) {
+            return sizeBytes;
+        }
+    }
+
+    public long getHitsCnt() {
+        return hits.sum();
+    }
+
+    public long getMissesCnt() {
+        return misses.sum();
+    }
+}
@@ -10,6 +10,8 @@ public abstract class Command implements Callable<String> {
 
     protected Server server;
     private final CommandType type;
+    // the songs behind the reply, for the replies that list songs
+    private List<Song> resultSongs;
 
     protected Command(Server server, CommandType type) {
         this.server = server;
@@ -20,6 +22,19 @@ public abstract class Command implements Callable<String> {
         return type;
     }
 
+    public List<Song> getResultSongs() {
+        return resultSongs;
+    }
+
+    protected void setResultSongs(List<Song> resultSongs) {
+        this.resultSongs = resultSongs;
+    }
+
+    // commands with the same key give the same reply, null when the reply must not be cached
+    public String getCacheKey() {
+        return null;
+    }
+
     protected static String songsStreamsAsStr(List<Song> songs) {
         StringBuilder result = new StringBuilder();
 
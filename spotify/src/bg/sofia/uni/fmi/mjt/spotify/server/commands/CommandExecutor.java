@@ -2,10 +2,10 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands;
 
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.LoginCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlayCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserAlreadyLoggedException;
-import bg.sofia.uni.fmi.mjt.spotify.server.portsmanager.exceptions.NotLoggedUserException;
-
-import java.nio.channels.SelectionKey;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.NotLoggedUserException;
 
 public class CommandExecutor {
 
@@ -17,12 +17,12 @@ public class CommandExecutor {
         return command.call();
     }
 
-    public static void checkCommand(Command command, SelectionKey key)
+    public static void checkCommand(Command command, ClientConnection connection)
             throws NotLoggedUserException, UserAlreadyLoggedException {
         if (command == null) {
             return;
         }
-        boolean isLoggedIn = key.attachment() != null;
+        boolean isLoggedIn = connection.getUser() != null;
 
         if (!isLoggedIn) {
             if (command.getType() == CommandType.REGISTER || command.getType() == CommandType.LOGIN) {
@@ -36,7 +36,7 @@ public class CommandExecutor {
         }
     }
 
-    public static void checkLogin(Command cmd, SelectionKey key) {
+    public static void checkLogin(Command cmd, ClientConnection connection) {
         if (cmd == null || cmd.getType() != CommandType.LOGIN) {
             return;
         }
@@ -47,6 +47,30 @@ public class CommandExecutor {
         }
 
         User user = loginCommand.getUser();
-        key.attach(user);
+        connection.setUser(user);
+    }
+
+    public static void checkCodec(Command cmd, ClientConnection connection) {
+        if (cmd == null || cmd.getType() != CommandType.PLAY) {
+            return;
+        }
+
+        PlayCommand playCommand = (PlayCommand) cmd;
+        playCommand.setCodec(connection.getAudioCodec());
+    }
+
+    public static void checkStream(Command cmd, ClientConnection connection) {
+        if (cmd == null) {
+            return;
+        }
+
+        if (cmd.getType() == CommandType.PLAY) {
+            PlayCommand playCommand = (PlayCommand) cmd;
+            if (playCommand.getStreamer() != null) {
+                connection.startStream(playCommand.getStreamer());
+            }
+        } else if (cmd.getType() == CommandType.STOP || cmd.getType() == CommandType.DISCONNECT) {
+            connection.stopStream();
+        }
     }
 }
@@ -10,38 +10,39 @@ import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlayCommand
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlaylistCommand;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.RegisterCommand;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.SearchCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.StopCommand;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.TopSongsCommand;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public class CommandFactory {
+    private static final Map<CommandType, CommandParser> PARSERS = new EnumMap<>(CommandType.class);
 
-    public static Command create(String input, User user, Server server) {
-        if (input == null || input.isBlank()) {
-            return null;
-        }
-        if (input.equalsIgnoreCase(DisconnectCommand.COMMAND)) {
-            return new DisconnectCommand(user, server);
-        }
+    static {
+        PARSERS.put(CommandType.REGISTER, (arguments, user, server) -> RegisterCommand.of(arguments, server));
+        PARSERS.put(CommandType.LOGIN, (arguments, user, server) -> LoginCommand.of(arguments, server));
+        PARSERS.put(CommandType.DISCONNECT, DisconnectCommand::of);
+        PARSERS.put(CommandType.SEARCH, (arguments, user, server) -> SearchCommand.of(arguments, server));
+        PARSERS.put(CommandType.TOP, (arguments, user, server) -> TopSongsCommand.of(arguments, server));
+        PARSERS.put(CommandType.CREATE_PLAYLIST, CreatePlaylistCommand::of);
+        PARSERS.put(CommandType.ADD_SONG_TO, AddSongToCommand::of);
+        PARSERS.put(CommandType.SHOW_PLAYLIST, PlaylistCommand::of);
+        PARSERS.put(CommandType.PLAY, PlayCommand::of);
+        PARSERS.put(CommandType.STOP, StopCommand::of);
+    }
 
-        String[] commandFields = input.split("\\s+", 2);
-        if (commandFields.length != 2 && !commandFields[0].equalsIgnoreCase(SearchCommand.COMMAND)) {
+    public static Command create(CharSequence input, User user, Server server) {
+        if (input == null) {
             return null;
         }
 
-        String command = commandFields[0].toLowerCase().strip();
-        String commandContent = "";
-        if (commandFields.length == 2) {
-            commandContent = commandFields[1];
+        CommandTokenizer tokenizer = new CommandTokenizer(input);
+        CommandType type = tokenizer.commandType();
+        CommandParser parser = type == null ? null : PARSERS.get(type);
+        if (parser == null) {
+            return null;
         }
-        return switch (command) {
-            case PlayCommand.COMMAND -> PlayCommand.of(commandContent, user, server);
-            case SearchCommand.COMMAND -> SearchCommand.of(commandContent, server);
-            case PlaylistCommand.COMMAND -> PlaylistCommand.of(commandContent, user, server);
-            case TopSongsCommand.COMMAND -> TopSongsCommand.of(commandContent, server);
-            case AddSongToCommand.COMMAND -> AddSongToCommand.of(commandContent, user, server);
-            case CreatePlaylistCommand.COMMAND -> CreatePlaylistCommand.of(commandContent, user, server);
-            case LoginCommand.COMMAND -> LoginCommand.of(commandContent, server);
-            case RegisterCommand.COMMAND -> RegisterCommand.of(commandContent, server);
-            default -> null;
-        };
+        return parser.parse(tokenizer, user, server);
     }
 }
@@ -0,0 +1,10 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+
+// stateless, one shared instance per command type
+@FunctionalInterface
+public interface CommandParser {
+    Command parse(CommandTokenizer arguments, User user, Server server);
+}
@@ -0,0 +1,120 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands;
+
+// Walks over a command line in place: no regex, no lowercased copy and no intermediate arrays,
+// only the arguments a command keeps are copied out
+public class CommandTokenizer {
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final int RADIX = 10;
+
+    private final CharSequence input;
+    private final int end;
+    private int position;
+
+    public CommandTokenizer(CharSequence input) {
+        this.input = input;
+        int last = input.length();
+        while (last > 0 && Character.isWhitespace(input.charAt(last - 1))) {
+            --last;
+        }
+        this.end = last;
+        this.position = 0;
+    }
+
+    // the command name is matched case-insensitively, null when it is not a known command
+    public CommandType commandType() {
+        skipWhitespace();
+        int start = position;
+        skipToken();
+        int length = position - start;
+        for (CommandType type : COMMAND_TYPES) {
+            String keyword = type.toString();
+            if (keyword.length() == length && matchesIgnoreCase(keyword, start)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private boolean matchesIgnoreCase(String keyword, int start) {
+        for (int i = 0; i < keyword.length(); ++i) {
+            if (Character.toLowerCase(input.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasNext() {
+        skipWhitespace();
+        return position < end;
+    }
+
+    public int countTokens() {
+        int saved = position;
+        int cnt = 0;
+        while (hasNext()) {
+            skipToken();
+            ++cnt;
+        }
+        position = saved;
+        return cnt;
+    }
+
+    // null when there are no more tokens
+    public String next() {
+        if (!hasNext()) {
+            return null;
+        }
+        int start = position;
+        skipToken();
+        return input.subSequence(start, position).toString();
+    }
+
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NumberFormatException("Missing number");
+        }
+        int start = position;
+        skipToken();
+        return Integer.parseInt(input, start, position, RADIX);
+    }
+
+    // the text up to the delimiter, without the whitespace around it; null when there is no delimiter
+    public String nextUntil(char delimiter) {
+        skipWhitespace();
+        int start = position;
+        int delimiterIdx = start;
+        while (delimiterIdx < end && input.charAt(delimiterIdx) != delimiter) {
+            ++delimiterIdx;
+        }
+        if (delimiterIdx == end) {
+            return null;
+        }
+        int tokenEnd = delimiterIdx;
+        while (tokenEnd > start && Character.isWhitespace(input.charAt(tokenEnd - 1))) {
+            --tokenEnd;
+        }
+        position = delimiterIdx + 1;
+        return input.subSequence(start, tokenEnd).toString();
+    }
+
+    // everything left, stripped; empty when nothing is left
+    public String rest() {
+        skipWhitespace();
+        String rest = input.subSequence(position, end).toString();
+        position = end;
+        return rest;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(input.charAt(position))) {
+            ++position;
+        }
+    }
+
+    private void skipToken() {
+        while (position < end && !Character.isWhitespace(input.charAt(position))) {
+            ++position;
+        }
+    }
+}
@@ -10,6 +10,7 @@ public enum CommandType {
     ADD_SONG_TO("add-song-to"),
     SHOW_PLAYLIST("show-playlist"),
     PLAY("play"),
+    STOP("stop"),
     TERMINATE("terminate");
 
     private final String string;
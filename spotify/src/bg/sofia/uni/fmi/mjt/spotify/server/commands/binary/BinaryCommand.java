@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+
+// a binary request decoded when it is read, the command gets the user of the connection when it runs
+@FunctionalInterface
+public interface BinaryCommand {
+    Command create(User user, Server server) throws MalformedMessageException, InvalidEmailException;
+}
@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.BinaryReader;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.Opcode;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.AddSongToCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.CreatePlaylistCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.DisconnectCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.LoginCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlayCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlaylistCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.RegisterCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.SearchCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.StopCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.TopSongsCommand;
+
+import java.nio.ByteBuffer;
+
+public class BinaryCommandDecoder {
+    private static final int MAX_FILTERS_CNT = 64;
+
+    public static Command decode(ByteBuffer payload, User user, Server server)
+            throws MalformedMessageException, InvalidEmailException {
+        return decode(payload).create(user, server);
+    }
+
+    // the fields are read in the order they are on the wire, the payload is not needed after this
+    public static BinaryCommand decode(ByteBuffer payload) throws MalformedMessageException {
+        BinaryReader reader = new BinaryReader(payload);
+        Opcode opcode = reader.opcode();
+        BinaryCommand command = switch (opcode) {
+            case REGISTER -> {
+                String email = reader.string();
+                String password = reader.string();
+                yield (user, server) -> new RegisterCommand(email, password, server);
+            }
+            case LOGIN -> {
+                String email = reader.string();
+                String password = reader.string();
+                yield (user, server) -> new LoginCommand(email, password, server);
+            }
+            case DISCONNECT -> DisconnectCommand::new;
+            case SEARCH -> {
+                String[] filters = readFilters(reader);
+                yield (user, server) -> new SearchCommand(filters, server);
+            }
+            case TOP -> {
+                int limit = reader.varint();
+                yield (user, server) -> new TopSongsCommand(limit, server);
+            }
+            case CREATE_PLAYLIST -> {
+                String playlistName = reader.string();
+                yield (user, server) -> new CreatePlaylistCommand(playlistName, user, server);
+            }
+            case ADD_SONG_TO -> {
+                String playlistName = reader.string();
+                int songId = reader.varint();
+                yield (user, server) -> new AddSongToCommand(songId, playlistName, user, server);
+            }
+            case SHOW_PLAYLIST -> {
+                String playlistName = reader.string();
+                yield (user, server) -> new PlaylistCommand(playlistName, user, server);
+            }
+            case PLAY -> {
+                int songId = reader.varint();
+                // the start second is optional, older clients send only the song
+                int startSeconds = reader.hasRemaining() ? reader.varint() : 0;
+                yield (user, server) -> new PlayCommand(songId, startSeconds, user, server);
+            }
+            case STOP -> StopCommand::new;
+        };
+
+        if (reader.hasRemaining()) {
+            throw new MalformedMessageException("Unexpected bytes after the " + opcode + " request");
+        }
+        return command;
+    }
+
+    private static String[] readFilters(BinaryReader reader) throws MalformedMessageException {
+        int filtersCnt = reader.varint();
+        if (filtersCnt > MAX_FILTERS_CNT) {
+            throw new MalformedMessageException("Too many search filters: " + filtersCnt);
+        }
+        String[] filters = new String[filtersCnt];
+        for (int i = 0; i < filtersCnt; ++i) {
+            filters[i] = reader.string();
+        }
+        return filters;
+    }
+}
@@ -0,0 +1,44 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.Database;
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingSongException;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.BinaryWriter;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.ResponseStatus;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+
+import java.util.List;
+
+public class BinaryResponseEncoder {
+
+    // command is null when the request failed, then output is the error message
+    public static byte[] encode(Command command, String output, Database database) {
+        BinaryWriter writer = new BinaryWriter();
+        if (command == null) {
+            return writer.put(ResponseStatus.ERROR.getCode()).string(output.strip()).toByteArray();
+        }
+
+        List<Song> songs = command.getResultSongs();
+        if (songs == null) {
+            return writer.put(ResponseStatus.OK.getCode()).string(output.strip()).toByteArray();
+        }
+
+        writer.put(ResponseStatus.SONGS.getCode()).varint(songs.size());
+        for (Song song : songs) {
+            writer.varint(songId(song, database))
+                    .string(song.getTitle())
+                    .string(song.getArtist())
+                    .varint(song.getStreamsCnt());
+        }
+        return writer.toByteArray();
+    }
+
+    private static int songId(Song song, Database database) {
+        try {
+            return database.getSongId(song);
+        } catch (NonExistingSongException e) {
+            // every listed song comes from the database, so this means the catalogue is broken
+            throw new IllegalStateException(e);
+        }
+    }
+}
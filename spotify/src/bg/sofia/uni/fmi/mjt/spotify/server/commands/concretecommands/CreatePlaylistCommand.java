@@ -3,6 +3,7 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 public class CreatePlaylistCommand extends Command {
@@ -22,8 +23,9 @@ public class CreatePlaylistCommand extends Command {
         return "Playlist titled: " + playlistName + " by " + user.getEmail() + " was created";
     }
 
-    public static CreatePlaylistCommand of(String line, User user, Server server) {
-        if (line.isBlank()) {
+    public static CreatePlaylistCommand of(CommandTokenizer arguments, User user, Server server) {
+        String line = arguments.rest();
+        if (line.isEmpty()) {
             return null;
         }
         return new CreatePlaylistCommand(line, user, server);
@@ -3,6 +3,7 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 public class DisconnectCommand extends Command {
@@ -18,7 +19,14 @@ public class DisconnectCommand extends Command {
 
     @Override
     public String call() throws Exception {
-        server.getPortsManager().logOut(user);
+        server.getSessionManager().logOut(user);
         return "You've been disconnected from the server!";
     }
+
+    public static DisconnectCommand of(CommandTokenizer arguments, User user, Server server) {
+        if (arguments.hasNext()) {
+            return null;
+        }
+        return new DisconnectCommand(user, server);
+    }
 }
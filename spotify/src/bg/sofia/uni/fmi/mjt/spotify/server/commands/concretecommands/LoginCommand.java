@@ -4,6 +4,7 @@ import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 public class LoginCommand extends Command {
@@ -19,20 +20,21 @@ public class LoginCommand extends Command {
 
     @Override
     public String call() throws Exception {
-        server.getPortsManager().logInUser(user);
+        server.getSessionManager().logInUser(user);
         called = true;
         return "Successfully logged in";
     }
 
-    public static LoginCommand of(String line, Server server) {
-        String[] split = line.split(" ", 2);
+    public static LoginCommand of(CommandTokenizer arguments, Server server) {
+        String email = arguments.next();
+        String password = arguments.rest();
 
-        if (split.length != 2) {
+        if (email == null || password.isEmpty()) {
             return null;
         }
 
         try {
-            return new LoginCommand(split[0], split[1], server);
+            return new LoginCommand(email, password, server);
         } catch (InvalidEmailException e) {
             return null;
         }
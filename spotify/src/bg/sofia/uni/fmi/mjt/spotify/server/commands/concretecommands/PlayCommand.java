@@ -2,50 +2,129 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 
 import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.InvalidStartPositionException;
 import bg.sofia.uni.fmi.mjt.spotify.server.streamer.Streamer;
 
+import java.io.IOException;
+
 public class PlayCommand extends Command {
     public static final String COMMAND = "play";
+    private static final int NO_SONG_ID = -1;
+    private static final char SEEK_PREFIX = '@';
     private final String songStr;
+    private final int songId;
+    private final int startSeconds;
     private final User user;
+    private AudioCodec codec = AudioCodec.PCM;
+    private Streamer streamer;
 
     public PlayCommand(String songStr, User user, Server server) {
+        this(songStr, 0, user, server);
+    }
+
+    public PlayCommand(String songStr, int startSeconds, User user, Server server) {
         super(server, CommandType.PLAY);
         this.songStr = songStr;
+        this.songId = NO_SONG_ID;
+        this.startSeconds = startSeconds;
         this.user = user;
     }
 
-    @Override
-    public String call() throws Exception {
-        Song song = server.getDatabase().getSong(songStr);
+    public PlayCommand(int songId, User user, Server server) {
+        this(songId, 0, user, server);
+    }
 
-        long port = server.getPortsManager().getUserPort(user);
-        server.getPortsManager().isPortStreaming(port);
+    public PlayCommand(int songId, int startSeconds, User user, Server server) {
+        super(server, CommandType.PLAY);
+        this.songStr = null;
+        this.songId = songId;
+        this.startSeconds = startSeconds;
+        this.user = user;
+    }
 
-        Streamer streamer = new Streamer((int) port, song, server);
+    @Override
+    public String call() throws Exception {
+        Song song = songStr != null ? server.getDatabase().getSong(songStr) : server.getDatabase().getSong(songId);
 
-        Thread thread = new Thread(streamer, "Song Streamer for User: " + user);
-        thread.setDaemon(true);
-        thread.start();
+        server.getSessionManager().startStreaming(user);
+        Streamer newStreamer = new Streamer(song, user, server, startSeconds, codec);
+        try {
+            newStreamer.start();
+        } catch (IOException e) {
+            newStreamer.close();
+            throw new IOException("Could not stream the song: " + song.getFileName(), e);
+        } catch (InvalidStartPositionException e) {
+            newStreamer.close();
+            throw e;
+        }
+        streamer = newStreamer;
 
-        return "ok " + song.getAudioFormat() + " " + port;
+        // the codec follows the format, a client that did not ask for one gets the reply it always has
+        if (newStreamer.getCodec() != AudioCodec.PCM) {
+            return "ok " + song.getAudioFormat() + " " + newStreamer.getCodec().getName();
+        }
+        return "ok " + song.getAudioFormat();
     }
 
-    public static PlayCommand of(String line, User user, Server server) {
-        if (line.isBlank()) {
+    // play <Title - Artist> [@<seconds>], a title may contain '@' itself as long as no number follows it
+    public static PlayCommand of(CommandTokenizer arguments, User user, Server server) {
+        String line = arguments.rest();
+        int startSeconds = 0;
+        int seekIdx = line.lastIndexOf(SEEK_PREFIX);
+        if (seekIdx >= 0 && (seekIdx == 0 || Character.isWhitespace(line.charAt(seekIdx - 1)))
+                && isNumber(line, seekIdx + 1)) {
+            try {
+                startSeconds = Integer.parseInt(line.substring(seekIdx + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            line = line.substring(0, seekIdx).strip();
+        }
+        if (line.isEmpty()) {
             return null;
         }
-        return new PlayCommand(line, user, server);
+        return new PlayCommand(line, startSeconds, user, server);
+    }
+
+    private static boolean isNumber(String line, int from) {
+        if (from >= line.length()) {
+            return false;
+        }
+        for (int i = from; i < line.length(); ++i) {
+            if (!Character.isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public String getSongStr() {
         return songStr;
     }
 
+    public int getStartSeconds() {
+        return startSeconds;
+    }
+
     public User getUser() {
         return user;
     }
+
+    public AudioCodec getCodec() {
+        return codec;
+    }
+
+    // the codec the connection negotiated, the song is transcoded to it when it is supported
+    public void setCodec(AudioCodec codec) {
+        this.codec = codec;
+    }
+
+    public Streamer getStreamer() {
+        return streamer;
+    }
 }
@@ -5,6 +5,7 @@ import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 import java.util.List;
@@ -24,13 +25,15 @@ public class PlaylistCommand extends Command {
     public String call() throws Exception {
         Playlist playlist = server.getDatabase().getPlaylist(playlistTitle, user.getEmail());
         List<Song> songs = List.copyOf(playlist.getSongs());
+        setResultSongs(songs);
 
         return "Playlist " + playlist.getTitle() + " by " + playlist.getOwner().getEmail() + ":" +
                 System.lineSeparator() + Command.songsAsStr(songs);
     }
 
-    public static PlaylistCommand of(String line, User user, Server spotifyServer) {
-        if (line.isBlank()) {
+    public static PlaylistCommand of(CommandTokenizer arguments, User user, Server spotifyServer) {
+        String line = arguments.rest();
+        if (line.isEmpty()) {
             return null;
         }
 
@@ -2,6 +2,7 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 public class RegisterCommand extends Command {
@@ -21,13 +22,14 @@ public class RegisterCommand extends Command {
         return "Successfully registered";
     }
 
-    public static RegisterCommand of(String line, Server server) {
-        String[] split = line.split(" ");
+    public static RegisterCommand of(CommandTokenizer arguments, Server server) {
+        String email = arguments.next();
+        String password = arguments.next();
 
-        if (split.length != 2) {
+        if (password == null || arguments.hasNext()) {
             return null;
         }
 
-        return new RegisterCommand(split[0], split[1], server);
+        return new RegisterCommand(email, password, server);
     }
 }
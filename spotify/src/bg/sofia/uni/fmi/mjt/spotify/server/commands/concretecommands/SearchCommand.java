@@ -3,10 +3,14 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
 
 public class SearchCommand extends Command {
     public static final String COMMAND = "search";
@@ -21,6 +25,7 @@ public class SearchCommand extends Command {
     public String call() throws Exception {
         List<Song> songs;
         songs = new ArrayList<>(server.getDatabase().searchSongs(filters));
+        setResultSongs(songs);
 
         if (songs.isEmpty()) {
             return "No Songs Found";
@@ -29,8 +34,22 @@ public class SearchCommand extends Command {
         return "Found Songs:" + System.lineSeparator() + Command.songsAsStr(songs);
     }
 
-    public static SearchCommand of(String line, Server spotifyServer) {
-        String[] split = line.split(" ");
-        return new SearchCommand(split, spotifyServer);
+    @Override
+    public String getCacheKey() {
+        // the filters are matched case-insensitively and all of them must match, so their order does not matter
+        return Arrays.stream(filters)
+                .filter(filter -> !filter.isEmpty())
+                .map(filter -> filter.toLowerCase(Locale.ROOT))
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(" ", COMMAND + " ", ""));
+    }
+
+    public static SearchCommand of(CommandTokenizer arguments, Server spotifyServer) {
+        String[] filters = new String[arguments.countTokens()];
+        for (int i = 0; i < filters.length; ++i) {
+            filters[i] = arguments.next();
+        }
+        return new SearchCommand(filters, spotifyServer);
     }
 }
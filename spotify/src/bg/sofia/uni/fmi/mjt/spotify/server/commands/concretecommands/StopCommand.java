@@ -0,0 +1,32 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
+
+public class StopCommand extends Command {
+    public static final String COMMAND = "stop";
+    private final User user;
+
+    public StopCommand(User user, Server server) {
+        super(server, CommandType.STOP);
+        this.user = user;
+    }
+
+    @Override
+    public String call() throws Exception {
+        if (!server.getSessionManager().isStreaming(user)) {
+            return "Nothing to stop (no song is being streamed)";
+        }
+        return "Song stopped.";
+    }
+
+    public static StopCommand of(CommandTokenizer arguments, User user, Server server) {
+        if (arguments.hasNext()) {
+            return null;
+        }
+        return new StopCommand(user, server);
+    }
+}
@@ -3,6 +3,7 @@ package bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandTokenizer;
 import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
 
 import java.util.ArrayList;
@@ -21,6 +22,7 @@ public class TopSongsCommand extends Command {
     public String call() throws Exception {
         List<Song> topSongs;
         topSongs = new ArrayList<>(server.getDatabase().getTopSongs(limit));
+        setResultSongs(topSongs);
 
         if (topSongs.isEmpty()) {
             return "No Songs Found";
@@ -29,9 +31,17 @@ public class TopSongsCommand extends Command {
         return "Top Songs: " + System.lineSeparator() + Command.songsStreamsAsStr(topSongs);
     }
 
-    public static TopSongsCommand of(String line, Server spotifyServer) {
+    @Override
+    public String getCacheKey() {
+        return COMMAND + " " + limit;
+    }
+
+    public static TopSongsCommand of(CommandTokenizer arguments, Server spotifyServer) {
         try {
-            int limit = Integer.parseInt(line);
+            int limit = arguments.nextInt();
+            if (arguments.hasNext()) {
+                return null;
+            }
             return new TopSongsCommand(limit, spotifyServer);
         } catch (NumberFormatException e) {
             return null;
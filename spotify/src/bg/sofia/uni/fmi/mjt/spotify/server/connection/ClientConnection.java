@@ -0,0 +1,335 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.binary.BinaryCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.binary.BinaryCommandDecoder;
+import bg.sofia.uni.fmi.mjt.spotify.server.streamer.Streamer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+public class ClientConnection {
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int MAX_REQUEST_SIZE = 64 * 1024;
+    // the encoding, optionally followed by the audio codec
+    private static final int MAX_HELLO_SIZE = 2 * Byte.BYTES;
+    // the window the client pipelines its batches with, a client that sends more waits in the socket
+    static final int MAX_PENDING_REQUESTS = 256;
+
+    private final SelectionKey key;
+    private final SocketChannel channel;
+    private final InetAddress address;
+    private final Deque<ByteBuffer> pendingFrames;
+    private final Deque<Request> pendingRequests;
+    private ByteBuffer readBuffer;
+    private boolean executing;
+    private Encoding encoding;
+    // read by the command workers
+    private volatile AudioCodec audioCodec;
+    // the encoding and the codec can be negotiated only before the first request
+    private boolean negotiable;
+    private long lastActivityNanos;
+
+    // read by the command workers
+    private volatile User user;
+    private Streamer streamer;
+
+    public ClientConnection(SelectionKey key) {
+        this(key, null);
+    }
+
+    public ClientConnection(SelectionKey key, InetAddress address) {
+        this.key = key;
+        this.channel = (SocketChannel) key.channel();
+        this.address = address;
+        this.lastActivityNanos = System.nanoTime();
+        this.pendingFrames = new ArrayDeque<>();
+        this.pendingRequests = new ArrayDeque<>();
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        this.encoding = Encoding.TEXT;
+        this.audioCodec = AudioCodec.PCM;
+        this.negotiable = true;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    // the address the connection was accepted from, null when unknown
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    public boolean isExecuting() {
+        return executing;
+    }
+
+    public List<Request> readRequests() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            return null;
+        }
+        lastActivityNanos = System.nanoTime();
+
+        // a read may end in the middle of a request or hold several of them
+        List<Request> requests = new ArrayList<>();
+        readBuffer.flip();
+        while (readBuffer.remaining() >= Frame.HEADER_SIZE) {
+            int start = readBuffer.position();
+            byte type = readBuffer.get(start);
+            int length = readBuffer.getInt(start + Byte.BYTES);
+            if (type == FrameType.HELLO.getCode()) {
+                if (length < Byte.BYTES || length > MAX_HELLO_SIZE || !negotiable) {
+                    throw new IOException("The encoding must be negotiated once, before the first request");
+                }
+                if (readBuffer.remaining() < Frame.HEADER_SIZE + length) {
+                    break;
+                }
+                negotiate(readBuffer.get(start + Frame.HEADER_SIZE),
+                        length == MAX_HELLO_SIZE ? readBuffer.get(start + Frame.HEADER_SIZE + Byte.BYTES) : null);
+                readBuffer.position(start + Frame.HEADER_SIZE + length);
+                continue;
+            }
+            negotiable = false;
+
+            boolean tagged = type == FrameType.TAGGED_REQUEST.getCode();
+            if ((!tagged && type != FrameType.REQUEST.getCode())
+                    || length < (tagged ? Frame.REQUEST_ID_SIZE : 0) || length > MAX_REQUEST_SIZE) {
+                throw new IOException("Invalid request frame of type " + type + " and length " + length);
+            }
+            if (readBuffer.remaining() < Frame.HEADER_SIZE + length) {
+                break;
+            }
+
+            readBuffer.position(start + Frame.HEADER_SIZE);
+            int id = Request.NO_ID;
+            if (tagged) {
+                id = readBuffer.getInt();
+                length -= Frame.REQUEST_ID_SIZE;
+                if (id < 0) {
+                    throw new IOException("Invalid request id: " + id);
+                }
+            }
+            // decoded straight from the read buffer, the next read reuses it
+            int offset = readBuffer.position();
+            requests.add(encoding == Encoding.BINARY
+                    ? new Request(id, null, decodeBinary(readBuffer.slice(offset, length)))
+                    : new Request(id, new String(readBuffer.array(), readBuffer.arrayOffset() + offset, length,
+                            StandardCharsets.UTF_8)));
+            readBuffer.position(offset + length);
+        }
+        keepPartialRequest();
+        return requests;
+    }
+
+    private static BinaryCommand decodeBinary(ByteBuffer payload) {
+        try {
+            return BinaryCommandDecoder.decode(payload);
+        } catch (MalformedMessageException e) {
+            // answered in its turn, like a command that fails
+            return (user, server) -> {
+                throw e;
+            };
+        }
+    }
+
+    // codecCode is null when the client did not ask for a codec, the reply then has the encoding only
+    private void negotiate(byte code, Byte codecCode) {
+        negotiable = false;
+        try {
+            encoding = Encoding.of(code);
+        } catch (IllegalArgumentException e) {
+            // unknown encodings fall back to text, the reply tells the client which one is used
+            encoding = Encoding.TEXT;
+        }
+        if (codecCode == null) {
+            pendingFrames.add(Frame.hello(encoding));
+            return;
+        }
+        try {
+            audioCodec = AudioCodec.of(codecCode);
+        } catch (IllegalArgumentException e) {
+            audioCodec = AudioCodec.PCM;
+        }
+        pendingFrames.add(Frame.hello(encoding, audioCodec));
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public AudioCodec getAudioCodec() {
+        return audioCodec;
+    }
+
+    public boolean hasPendingFrames() {
+        return !pendingFrames.isEmpty();
+    }
+
+    private void keepPartialRequest() {
+        int needed = readBuffer.remaining() >= Frame.HEADER_SIZE
+                ? Frame.HEADER_SIZE + readBuffer.getInt(readBuffer.position() + Byte.BYTES)
+                : 0;
+        if (needed > readBuffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            larger.put(readBuffer);
+            readBuffer = larger;
+        } else if (needed == 0 && !readBuffer.hasRemaining() && readBuffer.capacity() > READ_BUFFER_SIZE) {
+            // shrink back after a large request
+            readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        } else {
+            readBuffer.compact();
+        }
+    }
+
+    public void addRequests(List<Request> requests) {
+        pendingRequests.addAll(requests);
+        updateReadInterest();
+    }
+
+    public Request pollRequest() {
+        if (executing || pendingRequests.isEmpty()) {
+            return null;
+        }
+        executing = true;
+        Request request = pendingRequests.poll();
+        updateReadInterest();
+        return request;
+    }
+
+    public void finishRequest() {
+        executing = false;
+        updateReadInterest();
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void enqueueResponse(String response) {
+        pendingFrames.add(Frame.response(response));
+    }
+
+    public void enqueueResponse(Request request, String response) {
+        enqueueResponse(request, response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void enqueueResponse(Request request, byte[] response) {
+        if (request.isTagged()) {
+            pendingFrames.add(Frame.tagged(FrameType.TAGGED_RESPONSE, request.id(), response));
+        } else {
+            pendingFrames.add(Frame.of(FrameType.RESPONSE, response));
+        }
+    }
+
+    public void startStream(Streamer streamer) {
+        this.streamer = streamer;
+    }
+
+    public void stopStream() {
+        if (streamer != null) {
+            streamer.stop();
+        }
+    }
+
+    public void flush() throws IOException {
+        // a stream stalled by a client that stopped reading does not get here and goes idle
+        lastActivityNanos = System.nanoTime();
+        if (streamer != null && streamer.isInFrame() && !streamer.writeFrame(channel)) {
+            setWriteInterest(true);
+            return;
+        }
+
+        // replies are interleaved only between audio frames
+        if (streamer != null && !streamer.hasMore()) {
+            pendingFrames.addFirst(Frame.audioEnd());
+            streamer.close();
+            streamer = null;
+        }
+        while (!pendingFrames.isEmpty()) {
+            ByteBuffer frame = pendingFrames.peek();
+            channel.write(frame);
+            if (frame.hasRemaining()) {
+                setWriteInterest(true);
+                return;
+            }
+            pendingFrames.poll();
+        }
+
+        if (streamer != null) {
+            // one audio frame per turn, so the other connections get their share of the selector
+            streamer.writeFrame(channel);
+        }
+        // a paced stream waits for its reactor to flush it again, a writable socket would only spin
+        setWriteInterest(streamer != null && !streamer.isPaced());
+    }
+
+    public boolean isStreamPaced() {
+        return streamer != null && streamer.isPaced();
+    }
+
+    public long getStreamResumeNanos() {
+        return streamer == null ? 0 : streamer.getResumeNanos();
+    }
+
+    // a client is not read while its queue is full or while it does not read its replies
+    private boolean acceptsRequests() {
+        return pendingRequests.size() < MAX_PENDING_REQUESTS && pendingFrames.isEmpty();
+    }
+
+    private void updateReadInterest() {
+        if (key.isValid()) {
+            setInterestOps((key.interestOps() & SelectionKey.OP_WRITE) != 0);
+        }
+    }
+
+    private void setWriteInterest(boolean enabled) {
+        if (key.isValid()) {
+            setInterestOps(enabled);
+        }
+    }
+
+    private void setInterestOps(boolean write) {
+        int ops = (acceptsRequests() ? SelectionKey.OP_READ : 0) | (write ? SelectionKey.OP_WRITE : 0);
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+        }
+    }
+
+    public void close() {
+        if (streamer != null) {
+            streamer.close();
+            streamer = null;
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+}
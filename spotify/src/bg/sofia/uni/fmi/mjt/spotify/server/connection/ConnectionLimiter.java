@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+// acquired by the acceptor for every new connection, released by the reactor that closes it
+public class ConnectionLimiter {
+    private final int maxConnections;
+    private final int maxConnectionsPerAddress;
+    private final Map<InetAddress, Integer> connectionsByAddress;
+    private int connectionsCnt;
+
+    public ConnectionLimiter(ConnectionLimits limits) {
+        this.maxConnections = limits.maxConnections();
+        this.maxConnectionsPerAddress = limits.maxConnectionsPerAddress();
+        this.connectionsByAddress = new HashMap<>();
+    }
+
+    public synchronized boolean tryAcquire(InetAddress address) {
+        if (connectionsCnt >= maxConnections) {
+            return false;
+        }
+        int fromAddress = connectionsByAddress.getOrDefault(address, 0);
+        if (fromAddress >= maxConnectionsPerAddress) {
+            return false;
+        }
+        connectionsByAddress.put(address, fromAddress + 1);
+        ++connectionsCnt;
+        return true;
+    }
+
+    public synchronized void release(InetAddress address) {
+        Integer fromAddress = connectionsByAddress.get(address);
+        if (fromAddress == null) {
+            return;
+        }
+        if (fromAddress == 1) {
+            connectionsByAddress.remove(address);
+        } else {
+            connectionsByAddress.put(address, fromAddress - 1);
+        }
+        --connectionsCnt;
+    }
+
+    public synchronized int getConnectionsCnt() {
+        return connectionsCnt;
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.time.Duration;
+
+public record ConnectionLimits(int maxConnections, int maxConnectionsPerAddress, Duration idleTimeout) {
+    public static final ConnectionLimits DEFAULT = new ConnectionLimits(10_000, 1_024, Duration.ofMinutes(10));
+
+    public ConnectionLimits {
+        if (maxConnections < 1 || maxConnectionsPerAddress < 1) {
+            throw new IllegalArgumentException("The connection limits must be positive");
+        }
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("The idle timeout must be positive");
+        }
+    }
+}
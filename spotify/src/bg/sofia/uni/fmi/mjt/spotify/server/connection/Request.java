@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.binary.BinaryCommand;
+
+// text is set for text connections, binary for connections that negotiated the binary encoding
+public record Request(int id, String text, BinaryCommand binary) {
+    // plain requests carry no id and are answered with plain responses
+    public static final int NO_ID = -1;
+
+    public Request(int id, String text) {
+        this(id, text, null);
+    }
+
+    public static Request untagged(String text) {
+        return new Request(NO_ID, text);
+    }
+
+    public boolean isTagged() {
+        return id != NO_ID;
+    }
+
+    public boolean isBinary() {
+        return binary != null;
+    }
+}
@@ -0,0 +1,70 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.dispatcher;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CommandDispatcher implements Closeable {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dispatchedCnt;
+    private final AtomicLong rejectedCnt;
+
+    public CommandDispatcher(int threadsCnt, int queueCapacity) {
+        AtomicInteger threadIdx = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadsCnt, threadsCnt, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "Command Worker " + threadIdx.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dispatchedCnt = new AtomicLong();
+        this.rejectedCnt = new AtomicLong();
+    }
+
+    public boolean dispatch(Runnable task) {
+        try {
+            executor.execute(task);
+            dispatchedCnt.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            // the queue is full, the caller answers instead of blocking the selector
+            rejectedCnt.incrementAndGet();
+            return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCnt() {
+        return executor.getActiveCount();
+    }
+
+    public long getDispatchedCnt() {
+        return dispatchedCnt.get();
+    }
+
+    public long getRejectedCnt() {
+        return rejectedCnt.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.exceptions;
+
+public class AlreadyStreamingException extends Exception {
+    public AlreadyStreamingException(String message) {
+        super(message);
+    }
+
+    public AlreadyStreamingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
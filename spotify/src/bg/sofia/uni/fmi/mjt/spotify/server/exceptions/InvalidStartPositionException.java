@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.exceptions;
+
+public class InvalidStartPositionException extends Exception {
+    public InvalidStartPositionException(String message) {
+        super(message);
+    }
+
+    public InvalidStartPositionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
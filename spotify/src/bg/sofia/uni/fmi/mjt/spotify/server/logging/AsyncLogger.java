@@ -0,0 +1,206 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class AsyncLogger implements Closeable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private final LogEvent[] ring;
+    private final int mask;
+    private final AtomicLong claimed;
+    private final LongAdder dropped;
+    private final Writer out;
+    private final Writer errOut;
+    private final Thread writerThread;
+
+    // only touched by the writer thread
+    private long consumed;
+    private long reportedDropped;
+
+    private volatile LogLevel level;
+    private volatile int sampleRate;
+    private volatile boolean running;
+
+    public AsyncLogger(int capacity, LogLevel level, Writer out, Writer errOut) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.ring = new LogEvent[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            ring[i] = new LogEvent(i);
+        }
+        this.mask = capacity - 1;
+        this.claimed = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.out = out;
+        this.errOut = errOut;
+        this.level = level;
+        this.sampleRate = 1;
+        this.running = true;
+        this.writerThread = new Thread(this::writeEvents, "Log Writer Thread");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public boolean isEnabled(LogLevel eventLevel) {
+        return level.includes(eventLevel);
+    }
+
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    // 1 keeps every sampled event, n keeps about one in n
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("The sample rate must be positive: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public long getDroppedCnt() {
+        return dropped.sum();
+    }
+
+    public void log(LogLevel eventLevel, String event, String user, String text) {
+        log(eventLevel, event, user, text, null);
+    }
+
+    // the throwable goes to the error output with its stack trace
+    public void log(LogLevel eventLevel, String event, String user, String text, Throwable throwable) {
+        if (isEnabled(eventLevel)) {
+            publish(eventLevel, event, user, text, throwable);
+        }
+    }
+
+    // for the high volume events, only about one in sampleRate of them is kept
+    public void logSampled(LogLevel eventLevel, String event, String user, String text) {
+        int rate = sampleRate;
+        if (isEnabled(eventLevel) && (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0)) {
+            publish(eventLevel, event, user, text, null);
+        }
+    }
+
+    // never blocks the caller, when the writer falls behind the event is dropped and counted
+    private void publish(LogLevel eventLevel, String event, String user, String text, Throwable throwable) {
+        long position = claimed.get();
+        LogEvent slot;
+        while (true) {
+            slot = ring[(int) (position & mask)];
+            long diff = slot.sequence - position;
+            if (diff == 0) {
+                if (claimed.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = claimed.get();
+            } else if (diff < 0) {
+                dropped.increment();
+                return;
+            } else {
+                position = claimed.get();
+            }
+        }
+
+        slot.timeMillis = System.currentTimeMillis();
+        slot.level = eventLevel;
+        slot.thread = Thread.currentThread().getName();
+        slot.event = event;
+        slot.user = user;
+        slot.text = text;
+        slot.throwable = throwable;
+        // publishes the fields above to the writer thread
+        slot.sequence = position + 1;
+    }
+
+    private void writeEvents() {
+        StringBuilder lines = new StringBuilder();
+        StringBuilder errLines = new StringBuilder();
+        while (running) {
+            if (drain(lines, errLines) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (drain(lines, errLines) > 0) {
+            // the events published before close
+        }
+    }
+
+    private int drain(StringBuilder lines, StringBuilder errLines) {
+        int drained = 0;
+        LogEvent slot = ring[(int) (consumed & mask)];
+        while (drained < MAX_BATCH_SIZE && slot.sequence == consumed + 1) {
+            format(slot, lines, errLines);
+            slot.clear();
+            // hands the slot back to the producers for the next lap of the ring
+            slot.sequence = consumed + ring.length;
+            ++consumed;
+            ++drained;
+            slot = ring[(int) (consumed & mask)];
+        }
+        long droppedNow = dropped.sum();
+        if (droppedNow != reportedDropped) {
+            lines.append(Instant.now()).append(' ').append(LogLevel.WARN).append(" log-overflow dropped=")
+                    .append(droppedNow - reportedDropped).append(System.lineSeparator());
+            reportedDropped = droppedNow;
+        }
+        write(out, lines);
+        write(errOut, errLines);
+        return drained;
+    }
+
+    private void format(LogEvent slot, StringBuilder lines, StringBuilder errLines) {
+        lines.append(Instant.ofEpochMilli(slot.timeMillis)).append(' ').append(slot.level)
+                .append(" [").append(slot.thread).append("] ").append(slot.event);
+        if (slot.user != null) {
+            lines.append(" user=").append(slot.user);
+        }
+        if (slot.text != null) {
+            lines.append(' ').append(slot.text.strip());
+        }
+        lines.append(System.lineSeparator());
+
+        if (slot.throwable != null) {
+            errLines.append(slot.throwable.getMessage()).append(Arrays.toString(slot.throwable.getStackTrace()))
+                    .append(System.lineSeparator());
+        }
+    }
+
+    private void write(Writer writer, StringBuilder lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            // one write and one flush for the whole batch
+            writer.append(lines);
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Could not write the log: " + e.getMessage());
+        }
+        lines.setLength(0);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.logging;
+
+// a reusable slot of the ring buffer, the fields are written by one producer and read by the writer thread
+class LogEvent {
+    // the ring position this slot is ready for, see AsyncLogger
+    volatile long sequence;
+
+    long timeMillis;
+    LogLevel level;
+    String thread;
+    String event;
+    String user;
+    String text;
+    Throwable throwable;
+
+    LogEvent(long sequence) {
+        this.sequence = sequence;
+    }
+
+    void clear() {
+        thread = null;
+        event = null;
+        user = null;
+        text = null;
+        throwable = null;
+    }
+}
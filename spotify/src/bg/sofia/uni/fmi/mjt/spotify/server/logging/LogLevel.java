@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.logging;
+
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    public boolean includes(LogLevel level) {
+        return level.ordinal() >= ordinal();
+    }
+}
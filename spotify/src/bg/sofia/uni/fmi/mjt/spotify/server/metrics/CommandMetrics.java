@@ -0,0 +1,48 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class CommandMetrics {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram write = new LatencyHistogram();
+
+    void recordParse(long nanos) {
+        requests.increment();
+        parse.record(nanos);
+    }
+
+    void recordExecute(long nanos) {
+        execute.record(nanos);
+    }
+
+    void recordWrite(long nanos) {
+        write.record(nanos);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    public long getRequestsCnt() {
+        return requests.sum();
+    }
+
+    public long getFailuresCnt() {
+        return failures.sum();
+    }
+
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    public LatencyHistogram getExecute() {
+        return execute;
+    }
+
+    public LatencyHistogram getWrite() {
+        return write;
+    }
+}
@@ -0,0 +1,272 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class ServerMetrics implements ServerMetricsMXBean {
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double P50 = 50;
+    private static final double P99 = 99;
+    private static final double NANOS_PER_MICRO = 1_000;
+    private static final double BYTES_PER_MB = 1024 * 1024;
+    private static final double PERCENT = 100;
+
+    private final Server server;
+    private final Map<CommandType, CommandMetrics> commandMetrics;
+    private final LongAdder invalidRequests;
+    private final AtomicInteger activeConnections;
+    private final LongAdder rejectedConnections;
+    private final LongAdder reapedConnections;
+    private final LongAdder bytesStreamed;
+
+    // the streaming rate is sampled lazily, at most once per interval
+    private long rateSampledAtNanos;
+    private long rateSampledBytes;
+    private long bytesPerSecond;
+
+    public ServerMetrics(Server server) {
+        this.server = server;
+        this.commandMetrics = new EnumMap<>(CommandType.class);
+        for (CommandType type : CommandType.values()) {
+            commandMetrics.put(type, new CommandMetrics());
+        }
+        this.invalidRequests = new LongAdder();
+        this.activeConnections = new AtomicInteger();
+        this.rejectedConnections = new LongAdder();
+        this.reapedConnections = new LongAdder();
+        this.bytesStreamed = new LongAdder();
+        this.rateSampledAtNanos = System.nanoTime();
+    }
+
+    // command is null when the request could not be parsed
+    public void recordParse(Command command, long nanos) {
+        if (command == null) {
+            invalidRequests.increment();
+            return;
+        }
+        commandMetrics.get(command.getType()).recordParse(nanos);
+    }
+
+    public void recordExecute(Command command, long nanos) {
+        if (command != null) {
+            commandMetrics.get(command.getType()).recordExecute(nanos);
+        }
+    }
+
+    public void recordWrite(Command command, long nanos) {
+        if (command != null) {
+            commandMetrics.get(command.getType()).recordWrite(nanos);
+        }
+    }
+
+    // command is null when the request failed before it was parsed
+    public void recordFailure(Command command) {
+        if (command == null) {
+            invalidRequests.increment();
+            return;
+        }
+        commandMetrics.get(command.getType()).recordFailure();
+    }
+
+    public void connectionOpened() {
+        activeConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    public void connectionReaped() {
+        reapedConnections.increment();
+    }
+
+    public void addBytesStreamed(long bytes) {
+        bytesStreamed.add(bytes);
+    }
+
+    public CommandMetrics getCommandMetrics(CommandType type) {
+        return commandMetrics.get(type);
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    @Override
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    @Override
+    public long getIdleConnectionsClosed() {
+        return reapedConnections.sum();
+    }
+
+    @Override
+    public int getLoggedInUsers() {
+        return server.getSessionManager().getLoggedInCnt();
+    }
+
+    @Override
+    public int getActiveStreams() {
+        return server.getSessionManager().getStreamingCnt();
+    }
+
+    @Override
+    public long getBytesStreamed() {
+        return bytesStreamed.sum();
+    }
+
+    @Override
+    public synchronized long getBytesStreamedPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - rateSampledAtNanos;
+        if (elapsed >= RATE_INTERVAL_NANOS) {
+            long total = bytesStreamed.sum();
+            bytesPerSecond = (total - rateSampledBytes) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            rateSampledBytes = total;
+            rateSampledAtNanos = now;
+        }
+        return bytesPerSecond;
+    }
+
+    @Override
+    public int getCommandQueueDepth() {
+        return server.getCommandDispatcher().getQueueDepth();
+    }
+
+    @Override
+    public int getActiveCommandThreads() {
+        return server.getCommandDispatcher().getActiveCnt();
+    }
+
+    @Override
+    public long getRejectedCommands() {
+        return server.getCommandDispatcher().getRejectedCnt();
+    }
+
+    @Override
+    public long getInvalidRequests() {
+        return invalidRequests.sum();
+    }
+
+    @Override
+    public long getResponseCacheHits() {
+        return server.getResponseCache().getHitsCnt();
+    }
+
+    @Override
+    public long getResponseCacheMisses() {
+        return server.getResponseCache().getMissesCnt();
+    }
+
+    @Override
+    public long getChunkCacheHits() {
+        return server.getChunkCache().getHitsCnt();
+    }
+
+    @Override
+    public long getChunkCacheMisses() {
+        return server.getChunkCache().getMissesCnt();
+    }
+
+    @Override
+    public double getChunkCacheHitRatio() {
+        return server.getChunkCache().getHitRatio();
+    }
+
+    @Override
+    public long getChunkCacheEvictions() {
+        return server.getChunkCache().getEvictionsCnt();
+    }
+
+    @Override
+    public long getChunkCacheBytes() {
+        return server.getChunkCache().getAllocatedBytes();
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return perCommand(CommandMetrics::getRequestsCnt);
+    }
+
+    @Override
+    public Map<String, Long> getCommandFailures() {
+        return perCommand(CommandMetrics::getFailuresCnt);
+    }
+
+    @Override
+    public Map<String, Long> getParseP99Micros() {
+        return perCommand(metrics -> toMicros(metrics.getParse().getValueAtPercentile(P99)));
+    }
+
+    @Override
+    public Map<String, Long> getExecuteP99Micros() {
+        return perCommand(metrics -> toMicros(metrics.getExecute().getValueAtPercentile(P99)));
+    }
+
+    @Override
+    public Map<String, Long> getWriteP99Micros() {
+        return perCommand(metrics -> toMicros(metrics.getWrite().getValueAtPercentile(P99)));
+    }
+
+    private Map<String, Long> perCommand(Function<CommandMetrics, Long> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        commandMetrics.forEach((type, metrics) -> {
+            if (metrics.getRequestsCnt() > 0) {
+                result.put(type.toString(), value.apply(metrics));
+            }
+        });
+        return result;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.round(nanos / NANOS_PER_MICRO);
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Connections: %d, logged in: %d, streaming: %d, streamed: %.2f MB/s (%.1f MB total)%n",
+                getActiveConnections(), getLoggedInUsers(), getActiveStreams(),
+                getBytesStreamedPerSecond() / BYTES_PER_MB, getBytesStreamed() / BYTES_PER_MB));
+        report.append(String.format("Connections rejected by the limits: %d, closed as idle: %d%n",
+                getRejectedConnections(), getIdleConnectionsClosed()));
+        report.append(String.format("Command queue: %d waiting, %d running, %d rejected, %d invalid requests%n",
+                getCommandQueueDepth(), getActiveCommandThreads(), getRejectedCommands(), getInvalidRequests()));
+        report.append(String.format("Response cache: %d hits, %d misses%n",
+                getResponseCacheHits(), getResponseCacheMisses()));
+        report.append(String.format("Chunk cache: %d hits, %d misses (%.1f%% hit ratio), %d evictions, %.1f MB%n",
+                getChunkCacheHits(), getChunkCacheMisses(), getChunkCacheHitRatio() * PERCENT,
+                getChunkCacheEvictions(), getChunkCacheBytes() / BYTES_PER_MB));
+        report.append(String.format("%-16s %10s %8s %22s %22s %22s%n", "command", "requests", "failed",
+                "parse p50/p99/max us", "execute p50/p99/max us", "write p50/p99/max us"));
+        commandMetrics.forEach((type, metrics) -> {
+            if (metrics.getRequestsCnt() > 0) {
+                report.append(String.format("%-16s %10d %8d %22s %22s %22s%n", type, metrics.getRequestsCnt(),
+                        metrics.getFailuresCnt(), latencies(metrics.getParse()), latencies(metrics.getExecute()),
+                        latencies(metrics.getWrite())));
+            }
+        });
+        return report.toString();
+    }
+
+    private static String latencies(LatencyHistogram histogram) {
+        return toMicros(histogram.getValueAtPercentile(P50)) + "/" + toMicros(histogram.getValueAtPercentile(P99))
+                + "/" + toMicros(histogram.getMax());
+    }
+}
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.metrics;
+
+import java.util.Map;
+
+public interface ServerMetricsMXBean {
+    int getActiveConnections();
+
+    long getRejectedConnections();
+
+    long getIdleConnectionsClosed();
+
+    int getLoggedInUsers();
+
+    int getActiveStreams();
+
+    long getBytesStreamed();
+
+    long getBytesStreamedPerSecond();
+
+    int getCommandQueueDepth();
+
+    int getActiveCommandThreads();
+
+    long getRejectedCommands();
+
+    long getInvalidRequests();
+
+    long getResponseCacheHits();
+
+    long getResponseCacheMisses();
+
+    long getChunkCacheHits();
+
+    long getChunkCacheMisses();
+
+    double getChunkCacheHitRatio();
+
+    long getChunkCacheEvictions();
+
+    long getChunkCacheBytes();
+
+    Map<String, Long> getCommandCounts();
+
+    Map<String, Long> getCommandFailures();
+
+    Map<String, Long> getParseP99Micros();
+
+    Map<String, Long> getExecuteP99Micros();
+
+    Map<String, Long> getWriteP99Micros();
+
+    String getReport();
+}
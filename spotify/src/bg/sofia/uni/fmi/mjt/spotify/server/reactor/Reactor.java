@@ -0,0 +1,374 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.reactor;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingUserException;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.cache.ResponseCache;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandFactory;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.binary.BinaryResponseEncoder;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.AsyncLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.LogLevel;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.NotLoggedUserException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+public class Reactor implements Runnable {
+    private static final String SERVER_BUSY = "The server is busy, try again later" + System.lineSeparator();
+    private static final String BINARY_REQUEST = "binary request";
+    private static final long STREAM_COUNTS_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long IDLE_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Server server;
+    private final CommandExecutor commandExecutor;
+    private final AsyncLogger logger;
+    private final Selector selector;
+    private final Queue<AcceptedChannel> acceptedChannels;
+    private final Queue<CommandResult> commandResults;
+    private final long idleTimeoutNanos;
+    private final TimingWheel<ClientConnection> idleConnections;
+    private final Queue<PacedStream> pacedStreams;
+    private volatile boolean terminated = false;
+
+    // command is null when the command failed, the response is already encoded for the connection
+    private record CommandResult(ClientConnection connection, Request request, Command command, byte[] response) {
+    }
+
+    private record AcceptedChannel(SocketChannel channel, InetAddress address) {
+    }
+
+    // a stream paced again since it was queued has a newer entry, the old one is skipped
+    private record PacedStream(long resumeNanos, ClientConnection connection) {
+    }
+
+    public Reactor(Server server, CommandExecutor commandExecutor, AsyncLogger logger) throws IOException {
+        this.server = server;
+        this.commandExecutor = commandExecutor;
+        this.logger = logger;
+        this.selector = Selector.open();
+        this.acceptedChannels = new ConcurrentLinkedQueue<>();
+        this.commandResults = new ConcurrentLinkedQueue<>();
+        this.idleTimeoutNanos = server.getConnectionLimits().idleTimeout().toNanos();
+        this.idleConnections = new TimingWheel<>(Math.min(IDLE_TICK_NANOS, idleTimeoutNanos), idleTimeoutNanos,
+                System.nanoTime());
+        this.pacedStreams = new PriorityQueue<>(Comparator.comparingLong(PacedStream::resumeNanos));
+    }
+
+    public void register(SocketChannel channel, InetAddress address) {
+        // channels are registered by the reactor thread itself, a foreign register would block on select
+        acceptedChannels.add(new AcceptedChannel(channel, address));
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try (selector) {
+            while (!terminated) {
+                selector.select(selectTimeoutMillis());
+                registerAcceptedChannels();
+                handleCommandResults();
+                resumePacedStreams();
+                idleConnections.advance(System.nanoTime(), this::checkIdle);
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        handleReadable(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        handleWritable(key);
+                    }
+                }
+            }
+            disconnectAll();
+        } catch (IOException e) {
+            logger.log(LogLevel.ERROR, "reactor-error", null, e.getMessage());
+        }
+    }
+
+    // the timeout drives the idle timing wheel and wakes the paced streams up
+    private long selectTimeoutMillis() {
+        long timeoutNanos = idleConnections.getTickNanos();
+        PacedStream next = pacedStreams.peek();
+        if (next != null) {
+            timeoutNanos = Math.min(timeoutNanos, next.resumeNanos() - System.nanoTime());
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+    }
+
+    private void resumePacedStreams() {
+        long now = System.nanoTime();
+        PacedStream paced;
+        while ((paced = pacedStreams.peek()) != null && paced.resumeNanos() - now <= 0) {
+            pacedStreams.poll();
+            ClientConnection connection = paced.connection();
+            if (!connection.isOpen() || !connection.isStreamPaced()
+                    || connection.getStreamResumeNanos() != paced.resumeNanos()) {
+                continue;
+            }
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                handleConnectionReset(e, connection);
+            }
+        }
+    }
+
+    private void flush(ClientConnection connection) throws IOException {
+        connection.flush();
+        if (connection.isStreamPaced()) {
+            pacedStreams.add(new PacedStream(connection.getStreamResumeNanos(), connection));
+        }
+    }
+
+    private void registerAcceptedChannels() {
+        AcceptedChannel accepted;
+        while ((accepted = acceptedChannels.poll()) != null) {
+            try {
+                accepted.channel().configureBlocking(false);
+                SelectionKey clientKey = accepted.channel().register(selector, SelectionKey.OP_READ);
+                ClientConnection connection = new ClientConnection(clientKey, accepted.address());
+                clientKey.attach(connection);
+                server.getMetrics().connectionOpened();
+                idleConnections.schedule(connection, connection.getLastActivityNanos() + idleTimeoutNanos);
+            } catch (IOException e) {
+                logger.log(LogLevel.WARN, "register-failed", null, e.getMessage());
+                closeAccepted(accepted);
+            }
+        }
+    }
+
+    // the wheel keeps a connection where it was scheduled, its activity since then only moves it further
+    private void checkIdle(ClientConnection connection) {
+        if (!connection.isOpen()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long deadline = connection.getLastActivityNanos() + idleTimeoutNanos;
+        if (connection.isExecuting()) {
+            idleConnections.schedule(connection, now + idleTimeoutNanos);
+        } else if (deadline - now > 0) {
+            idleConnections.schedule(connection, deadline);
+        } else {
+            logger.log(LogLevel.INFO, "idle-timeout", userOf(connection), null);
+            server.getMetrics().connectionReaped();
+            disconnect(connection);
+        }
+    }
+
+    private void handleReadable(SelectionKey key) {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        try {
+            List<Request> clientInputs = connection.readRequests();
+            if (clientInputs == null) {
+                disconnect(connection);
+                return;
+            }
+            connection.addRequests(clientInputs);
+            if (connection.hasPendingFrames()) {
+                // the reply to an encoding negotiation
+                flush(connection);
+            }
+            dispatchNextRequest(connection);
+
+        } catch (IOException e) {
+            handleConnectionReset(e, connection);
+        }
+    }
+
+    private void handleWritable(SelectionKey key) {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        try {
+            flush(connection);
+        } catch (IOException e) {
+            handleConnectionReset(e, connection);
+        }
+    }
+
+    private void dispatchNextRequest(ClientConnection connection) {
+        // the requests of a connection run one at a time, so each sees the state left by the previous one
+        Request request = connection.pollRequest();
+        if (request == null) {
+            return;
+        }
+        logRequest(connection, request.isBinary() ? BINARY_REQUEST : request.text());
+        boolean dispatched = server.getCommandDispatcher().dispatch(() -> {
+            commandResults.add(executeCommand(request, connection));
+            selector.wakeup();
+        });
+        if (!dispatched) {
+            commandResults.add(new CommandResult(connection, request, null,
+                    encodeResponse(connection, null, SERVER_BUSY)));
+            // the results are drained after the next select, which must not wait for the timeout
+            selector.wakeup();
+        }
+    }
+
+    private void handleCommandResults() {
+        CommandResult result;
+        while ((result = commandResults.poll()) != null) {
+            ClientConnection connection = result.connection();
+            connection.finishRequest();
+            CommandExecutor.checkLogin(result.command(), connection);
+            CommandExecutor.checkStream(result.command(), connection);
+            if (!connection.isOpen()) {
+                // the client left while its command was running, release what the command acquired
+                disconnect(connection);
+                continue;
+            }
+
+            try {
+                long start = System.nanoTime();
+                connection.enqueueResponse(result.request(), result.response());
+                flush(connection);
+                server.getMetrics().recordWrite(result.command(), System.nanoTime() - start);
+            } catch (IOException e) {
+                handleConnectionReset(e, connection);
+                continue;
+            }
+            dispatchNextRequest(connection);
+        }
+    }
+
+    private CommandResult executeCommand(Request request, ClientConnection connection) {
+        Command command = null;
+        try {
+            long start = System.nanoTime();
+            command = request.isBinary()
+                    ? request.binary().create(connection.getUser(), server)
+                    : CommandFactory.create(request.text(), connection.getUser(), server);
+            long parsed = System.nanoTime();
+            server.getMetrics().recordParse(command, parsed - start);
+
+            CommandExecutor.checkCommand(command, connection);
+            CommandExecutor.checkCodec(command, connection);
+            byte[] response = respond(command, connection);
+            server.getMetrics().recordExecute(command, System.nanoTime() - parsed);
+            return new CommandResult(connection, request, command, response);
+        } catch (Exception e) {
+            server.getMetrics().recordFailure(command);
+            logger.log(LogLevel.WARN, "command-failed", userOf(connection), e.getMessage(), e);
+            return new CommandResult(connection, request, null,
+                    encodeResponse(connection, null, e.getMessage() + System.lineSeparator()));
+        }
+    }
+
+    private byte[] respond(Command command, ClientConnection connection) throws Exception {
+        String cacheKey = command == null ? null : command.getCacheKey();
+        // read before executing, a reply built while the catalogue changes is then stale on arrival
+        long catalogueVersion = server.getDatabase().getCatalogueVersion();
+        if (cacheKey != null) {
+            byte[] cached = server.getResponseCache().get(connection.getEncoding(), cacheKey, catalogueVersion);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        String output = commandExecutor.execute(command);
+        logger.log(LogLevel.DEBUG, "reply", userOf(connection), output);
+        byte[] response = encodeResponse(connection, command, output);
+        if (cacheKey != null) {
+            server.getResponseCache().put(connection.getEncoding(), cacheKey, response, catalogueVersion,
+                    cacheTtlNanos(command, connection.getEncoding()));
+        }
+        return response;
+    }
+
+    // replies that list stream counts go stale with every play, the rest only when the catalogue changes
+    private static long cacheTtlNanos(Command command, Encoding encoding) {
+        if (command.getType() == CommandType.TOP || encoding == Encoding.BINARY) {
+            return STREAM_COUNTS_TTL_NANOS;
+        }
+        return ResponseCache.NO_TTL;
+    }
+
+    private byte[] encodeResponse(ClientConnection connection, Command command, String output) {
+        if (connection.getEncoding() == Encoding.BINARY) {
+            return BinaryResponseEncoder.encode(command, output, server.getDatabase());
+        }
+        return output.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void logRequest(ClientConnection connection, String input) {
+        // only references are handed over, the line is formatted by the log writer thread
+        logger.logSampled(LogLevel.INFO, "request", userOf(connection), input);
+    }
+
+    private static String userOf(ClientConnection connection) {
+        User user = connection.getUser();
+        return user == null ? null : user.getEmail();
+    }
+
+    private void disconnect(ClientConnection connection) {
+        if (connection.isOpen()) {
+            server.getMetrics().connectionClosed();
+            server.getConnectionLimiter().release(connection.getAddress());
+        }
+        connection.close();
+        try {
+            server.getSessionManager().logOut(connection.getUser());
+        } catch (NotLoggedUserException | NonExistingUserException e) {
+            // ignore - user has disconnected
+        }
+        connection.setUser(null);
+    }
+
+    private void disconnectAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof ClientConnection connection) {
+                disconnect(connection);
+            }
+        }
+        pacedStreams.clear();
+        AcceptedChannel accepted;
+        while ((accepted = acceptedChannels.poll()) != null) {
+            closeAccepted(accepted);
+        }
+    }
+
+    private void closeAccepted(AcceptedChannel accepted) {
+        closeChannel(accepted.channel());
+        server.getConnectionLimiter().release(accepted.address());
+    }
+
+    private void handleConnectionReset(IOException e, ClientConnection connection) {
+        if (e.getMessage() == null || !e.getMessage().contains("Connection reset")) {
+            logger.log(LogLevel.WARN, "connection-error", userOf(connection), e.getMessage());
+        }
+        disconnect(connection);
+    }
+
+    private void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //already closed
+        }
+    }
+
+    public void terminate() {
+        terminated = true;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.reactor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hashed timing wheel: scheduling and expiring are O(1) per item, however many items are waiting.
+// Not thread safe, it belongs to one reactor.
+public class TimingWheel<T> {
+    private final List<List<T>> slots;
+    private final long tickNanos;
+    private final long startNanos;
+    private long currentTick;
+
+    // span is the furthest deadline that can be scheduled
+    public TimingWheel(long tickNanos, long spanNanos, long nowNanos) {
+        if (tickNanos <= 0 || spanNanos < tickNanos) {
+            throw new IllegalArgumentException("The span must hold at least one positive tick");
+        }
+        int slotsCnt = (int) (spanNanos / tickNanos) + 2;
+        this.slots = new ArrayList<>(slotsCnt);
+        for (int i = 0; i < slotsCnt; ++i) {
+            slots.add(new ArrayList<>());
+        }
+        this.tickNanos = tickNanos;
+        this.startNanos = nowNanos;
+        this.currentTick = 0;
+    }
+
+    // the item expires on the first tick at or after its deadline, deadlines beyond the span are pulled in
+    public void schedule(T item, long deadlineNanos) {
+        long tick = Math.max(ticksAt(deadlineNanos) + 1, currentTick + 1);
+        tick = Math.min(tick, currentTick + slots.size() - 1);
+        slots.get((int) (tick % slots.size())).add(item);
+    }
+
+    // hands over every item whose tick has passed, the consumer may schedule them again
+    public void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = ticksAt(nowNanos);
+        while (currentTick < targetTick) {
+            ++currentTick;
+            List<T> slot = slots.get((int) (currentTick % slots.size()));
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<T> due = new ArrayList<>(slot);
+            slot.clear();
+            due.forEach(expired);
+        }
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private long ticksAt(long nanos) {
+        return Math.max(0, (nanos - startNanos) / tickNanos);
+    }
+}
@@ -0,0 +1,101 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.Database;
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.InvalidPasswordException;
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingUserException;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.AlreadyStreamingException;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.AlreadyLoggedUserException;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.NotLoggedUserException;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class SessionManager {
+    private final Database database;
+
+    private final Set<User> loggedUsers;
+    private final Set<User> streamingUsers;
+
+    private final Object lock = new Object();
+
+    public SessionManager(Database database) {
+        this.database = database;
+
+        loggedUsers = new HashSet<>();
+        streamingUsers = new HashSet<>();
+    }
+
+    public void logInUser(User user)
+            throws AlreadyLoggedUserException, NonExistingUserException, InvalidPasswordException {
+        if (user == null) {
+            return;
+        }
+        synchronized (lock) {
+            database.checkUser(user);
+            if (loggedUsers.contains(user)) {
+                throw new AlreadyLoggedUserException("User " + user.getEmail() + " is already logged in");
+            }
+            loggedUsers.add(user);
+        }
+    }
+
+    public void logOut(User user) throws NotLoggedUserException, NonExistingUserException {
+        if (user == null) {
+            return;
+        }
+        synchronized (lock) {
+            checkRegistered(user);
+            if (!loggedUsers.contains(user)) {
+                throw new NotLoggedUserException("User " + user.getEmail() + " is not logged in");
+            }
+            loggedUsers.remove(user);
+        }
+    }
+
+    private void checkRegistered(User user) throws NonExistingUserException {
+        try {
+            database.checkUser(user.getEmail(), "");
+        } catch (InvalidPasswordException e) {
+            //ignore
+        }
+    }
+
+    public boolean isLoggedIn(User user) {
+        synchronized (lock) {
+            return loggedUsers.contains(user);
+        }
+    }
+
+    public void startStreaming(User user) throws AlreadyStreamingException {
+        synchronized (lock) {
+            if (!streamingUsers.add(user)) {
+                throw new AlreadyStreamingException("Cannot play a song, while listening to another");
+            }
+        }
+    }
+
+    public boolean isStreaming(User user) {
+        synchronized (lock) {
+            return streamingUsers.contains(user);
+        }
+    }
+
+    public int getLoggedInCnt() {
+        synchronized (lock) {
+            return loggedUsers.size();
+        }
+    }
+
+    public int getStreamingCnt() {
+        synchronized (lock) {
+            return streamingUsers.size();
+        }
+    }
+
+    public void stopStreaming(User user) {
+        synchronized (lock) {
+            streamingUsers.remove(user);
+        }
+    }
+}
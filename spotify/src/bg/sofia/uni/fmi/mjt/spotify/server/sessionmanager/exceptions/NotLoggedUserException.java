@@ -1,4 +1,4 @@
-package bg.sofia.uni.fmi.mjt.spotify.server.portsmanager.exceptions;
+package bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions;
 
 public class NotLoggedUserException extends RuntimeException {
     public NotLoggedUserException(String message) {
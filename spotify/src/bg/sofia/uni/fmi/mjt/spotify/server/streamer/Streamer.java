@@ -1,56 +1,274 @@
 package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
 
 import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
 import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.cache.ChunkCache;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.InvalidStartPositionException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.AsyncLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.logging.LogLevel;
+import bg.sofia.uni.fmi.mjt.spotify.server.transcoder.TranscodedFile;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Path;
 
-public class Streamer implements Runnable {
-    private final int port;
+public class Streamer implements Closeable {
+    private static final int CHUNK_SIZE = ChunkCache.CHUNK_SIZE;
+    // a little faster than playback, so the client buffer fills up slowly instead of all at once
+    private static final double PACE_FACTOR = 1.25;
+    private static final int INITIAL_BURST_SECONDS = 2;
+    private static final int MIN_PACED_FRAME = 16 * 1024;
+
     private final Song song;
+    private final User user;
     private final Server server;
+    private final int startSeconds;
+    private AudioCodec codec;
+
+    // this stream's view of the song file mapped by the song, or of its transcoded output
+    private ByteBuffer source;
+    private String sourceName;
+    private TranscodedFile transcoded;
+    private long position;
+    private long end;
+
+    private ByteBuffer frameHeader;
+    private long frameRemaining;
+    // the frame is written from a cached chunk when there is one, from the mapped file otherwise
+    private ChunkCache.Chunk chunk;
+    private ByteBuffer frameData;
 
-    public Streamer(int port, Song song, Server server) {
-        this.port = port;
+    // null when the song does not tell its playback rate
+    private TokenBucket pacer;
+    private boolean paced;
+    private long resumeNanos;
+    private boolean started;
+
+    public Streamer(Song song, User user, Server server) {
+        this(song, user, server, 0);
+    }
+
+    public Streamer(Song song, User user, Server server, int startSeconds) {
+        this(song, user, server, startSeconds, AudioCodec.PCM);
+    }
+
+    public Streamer(Song song, User user, Server server, int startSeconds, AudioCodec codec) {
         this.song = song;
+        this.user = user;
         this.server = server;
+        this.startSeconds = startSeconds;
+        this.codec = codec;
     }
 
-    @Override
-    public void run() {
-        server.getPortsManager().lockPort(port);
-
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            try (Socket socket = serverSocket.accept();
-                 BufferedOutputStream outputStream = new BufferedOutputStream(socket.getOutputStream());
-                 BufferedInputStream inputStream = new BufferedInputStream(Files.newInputStream(
-                         Path.of(server.getDatabase().getSongSrc() + song.getFileName())))) {
-
-                song.stream();
-
-                byte[] output = new byte[song.getFrameSize()];
-                while (inputStream.available() > 0) {
-                    int readBytes = inputStream.read(output, 0, output.length);
-                    outputStream.write(output, 0, readBytes);
-                }
-                outputStream.flush();
-            } catch (SocketException ignored) {
-                //user stopped the song
-            }
+    public void start() throws IOException, InvalidStartPositionException {
+        Path songFile = Path.of(server.getDatabase().getSongSrc() + song.getFileName());
+        if (codec != AudioCodec.PCM) {
+            transcoded = transcode(songFile);
+        }
+        long bytesPerSecond = song.getBytesPerSecond();
+        if (transcoded != null) {
+            source = transcoded.data();
+            sourceName = transcoded.getName();
+            end = transcoded.getDataEnd();
+            position = transcodedStartPosition();
+            bytesPerSecond = transcodedBytesPerSecond();
+        } else {
+            // a song still being encoded or of a format the codec does not support is streamed as it is,
+            // the reply tells the client so
+            codec = AudioCodec.PCM;
+            source = song.openSource(songFile);
+            // the chunks of an earlier mapping may hold the file as it was before it changed
+            sourceName = song.getSourceName();
+            end = source.capacity();
+            position = startPosition();
+        }
+        if (startSeconds > 0 && position >= end) {
+            throw new InvalidStartPositionException(song + " is not " + startSeconds + " seconds long");
+        }
+        if (bytesPerSecond > 0) {
+            pacer = new TokenBucket((long) (bytesPerSecond * PACE_FACTOR),
+                    Math.max(CHUNK_SIZE, bytesPerSecond * INITIAL_BURST_SECONDS), System.nanoTime());
+        }
+        song.stream();
+        started = true;
+    }
+
+    // the song is still streamed when its output cannot be written, only uncompressed
+    private TranscodedFile transcode(Path songFile) {
+        try {
+            return server.getTranscoder().transcode(songFile, codec);
         } catch (IOException e) {
-            System.out.println("Could not stream the song: " + song.getFileName() + ", " + e.getMessage());
+            AsyncLogger logger = server.getLogger();
+            if (logger != null) {
+                logger.log(LogLevel.WARN, "transcode-failed", user.getEmail(), e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    // a stream from the start sends the whole file, a stream from a later second only the samples from there on
+    private long startPosition() {
+        long dataOffset = WavHeader.dataOffset(source);
+        if (startSeconds == 0 || dataOffset == WavHeader.NO_DATA || song.getBytesPerSecond() == 0) {
+            return 0;
+        }
+        // the client gets whole frames only, its line would otherwise play shifted samples
+        long offset = startSeconds * song.getBytesPerSecond();
+        offset -= offset % song.getFrameSize();
+        return dataOffset + offset;
+    }
+
+    // the block holding the start second, blocks are decoded as a whole
+    private long transcodedStartPosition() {
+        if (startSeconds == 0 || song.getBytesPerSecond() == 0) {
+            return transcoded.getDataOffset();
+        }
+        int block = transcoded.blockOf(startSeconds * song.getBytesPerSecond() / song.getFrameSize());
+        return block < transcoded.getBlocksCnt() ? transcoded.getBlockOffset(block) : end;
+    }
+
+    // the playback rate of the encoded bytes, on average over the whole song
+    private long transcodedBytesPerSecond() {
+        long pcmBytes = transcoded.getTotalFrames() * song.getFrameSize();
+        if (pcmBytes == 0) {
+            return 0;
+        }
+        return Math.max(1, (long) ((double) song.getBytesPerSecond() * (end - transcoded.getDataOffset()) / pcmBytes));
+    }
+
+    public boolean hasMore() {
+        return isInFrame() || position < end;
+    }
+
+    public boolean isInFrame() {
+        return frameHeader != null;
+    }
+
+    public boolean writeFrame(SocketChannel socketChannel) throws IOException {
+        if (frameHeader == null) {
+            long frameSize = nextFrameSize();
+            if (frameSize == 0) {
+                return false;
+            }
+            frameRemaining = frameSize;
+            frameHeader = Frame.header(FrameType.AUDIO, (int) frameRemaining);
+            acquireChunk();
         }
 
-        song.endStream();
-        server.getPortsManager().freePort(port);
+        socketChannel.write(frameHeader);
+        if (frameHeader.hasRemaining()) {
+            return false;
+        }
 
-        System.out.println("Song has ended");
+        // a non-blocking socket takes only what fits in its send buffer, the rest waits for the next OP_WRITE
+        long written = socketChannel.write(frameData);
+        server.getMetrics().addBytesStreamed(written);
+        position += written;
+        frameRemaining -= written;
+        if (frameRemaining > 0) {
+            return false;
+        }
+
+        frameHeader = null;
+        releaseChunk();
+        return true;
+    }
+
+    private void acquireChunk() throws IOException {
+        chunk = server.getChunkCache().acquire(sourceName, position / CHUNK_SIZE, this::loadChunk);
+        if (chunk != null) {
+            int offset = (int) (position % CHUNK_SIZE);
+            frameData = chunk.data();
+            if (frameData.limit() >= offset + frameRemaining) {
+                frameData.position(offset).limit(offset + (int) frameRemaining);
+                return;
+            }
+            // a chunk shorter than its source, the source itself is still right
+            releaseChunk();
+        }
+        frameData = source.duplicate();
+        frameData.limit((int) (position + frameRemaining)).position((int) position);
+    }
+
+    private void loadChunk(ByteBuffer target, long offset) {
+        ByteBuffer data = source.duplicate();
+        data.position((int) Math.min(offset, data.capacity()));
+        data.limit((int) Math.min(offset + target.remaining(), data.capacity()));
+        target.put(data);
+    }
+
+    private void releaseChunk() {
+        if (chunk != null) {
+            server.getChunkCache().release(chunk);
+            chunk = null;
+        }
+        frameData = null;
+    }
+
+    // 0 while the pacer has no tokens for a frame, the frame is paid for in full before it starts
+    private long nextFrameSize() {
+        // a frame never crosses a chunk boundary, so it is written from a single cached chunk
+        long size = Math.min(CHUNK_SIZE - position % CHUNK_SIZE, end - position);
+        if (pacer == null) {
+            return size;
+        }
+        long now = System.nanoTime();
+        long needed = Math.min(size, MIN_PACED_FRAME);
+        long available = pacer.available(now);
+        if (available < needed) {
+            paced = true;
+            resumeNanos = now + pacer.nanosUntil(needed, now);
+            return 0;
+        }
+        paced = false;
+        size = Math.min(size, available);
+        pacer.consume(size);
+        return size;
+    }
+
+    // the stream is ahead of its rate and must not be written before getResumeNanos()
+    public boolean isPaced() {
+        return paced && !isInFrame() && hasMore();
+    }
+
+    public long getResumeNanos() {
+        return resumeNanos;
+    }
+
+    public void stop() {
+        // the frame on the wire must be completed, the stream ends right after it
+        end = position + frameRemaining;
+    }
+
+    public Song getSong() {
+        return song;
+    }
+
+    // PCM when the requested codec could not be used for the song
+    public AudioCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public void close() {
+        releaseChunk();
+        if (source != null) {
+            source = null;
+            if (transcoded == null) {
+                song.closeSource();
+            }
+        }
+        // a stream refused by start() was never counted, it must not take a stream of another listener
+        if (started) {
+            started = false;
+            song.endStream();
+        }
+        server.getSessionManager().stopStreaming(user);
     }
 }
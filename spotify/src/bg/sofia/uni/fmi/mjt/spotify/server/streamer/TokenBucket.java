@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
+
+import java.util.concurrent.TimeUnit;
+
+// not thread safe, a bucket is used only by the reactor of its stream
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long tokensPerSecond;
+    private final long capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    // the bucket starts full, so the first capacity bytes go out right away
+    public TokenBucket(long tokensPerSecond, long capacity, long nowNanos) {
+        if (tokensPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("The rate and the capacity must be positive");
+        }
+        this.tokensPerSecond = tokensPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    public long available(long nowNanos) {
+        refill(nowNanos);
+        return (long) tokens;
+    }
+
+    public void consume(long amount) {
+        tokens -= amount;
+    }
+
+    public long nanosUntil(long amount, long nowNanos) {
+        refill(nowNanos);
+        double missing = Math.min(amount, capacity) - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing * NANOS_PER_SECOND / tokensPerSecond);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        tokens = Math.min(capacity, tokens + (double) elapsed * tokensPerSecond / NANOS_PER_SECOND);
+        lastRefillNanos = nowNanos;
+    }
+}
@@ -0,0 +1,30 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// RIFF chunks: an id of 4 ASCII letters, a little endian size and the data, padded to an even size
+public class WavHeader {
+    public static final int NO_DATA = -1;
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int DATA_ID = 0x61746164; // "data" read as a little endian int
+
+    private WavHeader() {
+    }
+
+    // the offset of the first sample in the file, NO_DATA when there is no data chunk
+    public static long dataOffset(ByteBuffer file) {
+        ByteBuffer header = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long offset = RIFF_HEADER_SIZE;
+        while (offset + CHUNK_HEADER_SIZE <= header.limit()) {
+            int id = header.getInt((int) offset);
+            long size = Integer.toUnsignedLong(header.getInt((int) offset + Integer.BYTES));
+            if (id == DATA_ID) {
+                return offset + CHUNK_HEADER_SIZE;
+            }
+            offset += CHUNK_HEADER_SIZE + size + (size & 1);
+        }
+        return NO_DATA;
+    }
+}
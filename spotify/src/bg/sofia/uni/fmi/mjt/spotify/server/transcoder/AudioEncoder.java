@@ -0,0 +1,15 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.transcoder;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+
+public interface AudioEncoder {
+    AudioCodec getCodec();
+
+    boolean supports(AudioFormat format);
+
+    // whole frames of the song's samples, the block must be decodable on its own so a stream can start at it
+    byte[] encodeBlock(ByteBuffer pcm, AudioFormat format);
+}
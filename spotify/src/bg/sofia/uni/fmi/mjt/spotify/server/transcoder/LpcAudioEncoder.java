@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.transcoder;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcEncoder;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class LpcAudioEncoder implements AudioEncoder {
+    private static final int SAMPLE_SIZE_IN_BITS = 16;
+
+    @Override
+    public AudioCodec getCodec() {
+        return AudioCodec.LPC;
+    }
+
+    @Override
+    public boolean supports(AudioFormat format) {
+        return format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED
+                && format.getSampleSizeInBits() == SAMPLE_SIZE_IN_BITS
+                && format.getChannels() > 0
+                && format.getFrameSize() == format.getChannels() * Short.BYTES;
+    }
+
+    @Override
+    public byte[] encodeBlock(ByteBuffer pcm, AudioFormat format) {
+        ByteBuffer samples = pcm.duplicate()
+                .order(format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        int channels = format.getChannels();
+        int frames = samples.remaining() / format.getFrameSize();
+        int[][] channelSamples = new int[channels][frames];
+        for (int i = 0; i < frames; ++i) {
+            for (int channel = 0; channel < channels; ++channel) {
+                channelSamples[channel][i] = samples.getShort();
+            }
+        }
+        return LpcEncoder.encodeBlock(channelSamples, frames);
+    }
+}
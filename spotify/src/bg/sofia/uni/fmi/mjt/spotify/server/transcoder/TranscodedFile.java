@@ -0,0 +1,146 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.transcoder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The header, the encoded blocks streamed as they are and an index of the block offsets, so a stream can start
+// at any block
+public class TranscodedFile {
+    private static final int MAGIC = 0x4c50_4331; // "LPC1"
+    // magic, block frames, total frames, blocks count and index offset
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_INDEX_SIZE = 256 * Long.BYTES;
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    // unique for every opened output, so the chunks cached from a replaced output are never served for the new one
+    private final String name;
+    private final ByteBuffer data;
+    private final int blockFrames;
+    private final long totalFrames;
+    private final long[] blockOffsets;
+    private final long dataEnd;
+
+    private TranscodedFile(String name, ByteBuffer data, int blockFrames, long totalFrames, long[] blockOffsets,
+                           long dataEnd) {
+        this.name = name;
+        this.data = data;
+        this.blockFrames = blockFrames;
+        this.totalFrames = totalFrames;
+        this.blockOffsets = blockOffsets;
+        this.dataEnd = dataEnd;
+    }
+
+    // the samples are read block by block, a song is never held in memory as a whole
+    public static void write(Path target, AudioInputStream samples, AudioEncoder encoder, int blockFrames)
+            throws IOException {
+        AudioFormat format = samples.getFormat();
+        byte[] pcm = new byte[blockFrames * format.getFrameSize()];
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE;
+            long totalFrames = 0;
+            ByteBuffer index = ByteBuffer.allocate(INITIAL_INDEX_SIZE);
+            int read;
+            while ((read = samples.readNBytes(pcm, 0, pcm.length)) > 0) {
+                int frames = read / format.getFrameSize();
+                if (frames == 0) {
+                    break;
+                }
+                if (!index.hasRemaining()) {
+                    index = ByteBuffer.allocate(index.capacity() * 2).put(index.flip());
+                }
+                index.putLong(position);
+                byte[] block = encoder.encodeBlock(ByteBuffer.wrap(pcm, 0, frames * format.getFrameSize()), format);
+                position += writeFully(channel, ByteBuffer.wrap(block), position);
+                totalFrames += frames;
+            }
+
+            int blocksCnt = index.position() / Long.BYTES;
+            writeFully(channel, index.flip(), position);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(blockFrames).putLong(totalFrames).putInt(blocksCnt).putLong(position);
+            writeFully(channel, header.flip(), 0);
+            channel.force(false);
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // mapped once and shared by every stream of the file
+    public static TranscodedFile open(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid transcoded file size: " + file);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not a transcoded file: " + file);
+        }
+        int blockFrames = data.getInt(Integer.BYTES);
+        long totalFrames = data.getLong(2 * Integer.BYTES);
+        int blocksCnt = data.getInt(2 * Integer.BYTES + Long.BYTES);
+        long indexOffset = data.getLong(3 * Integer.BYTES + Long.BYTES);
+        if (blockFrames <= 0 || blocksCnt < 0 || indexOffset < HEADER_SIZE
+                || indexOffset + (long) blocksCnt * Long.BYTES > data.capacity()) {
+            throw new IOException("Corrupted transcoded file: " + file);
+        }
+        long[] blockOffsets = new long[blocksCnt];
+        for (int i = 0; i < blocksCnt; ++i) {
+            blockOffsets[i] = data.getLong((int) indexOffset + i * Long.BYTES);
+        }
+        return new TranscodedFile(file.getFileName() + "#" + GENERATIONS.incrementAndGet(), data.asReadOnlyBuffer(),
+                blockFrames, totalFrames, blockOffsets, indexOffset);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // a view of its own for every stream
+    public ByteBuffer data() {
+        return data.duplicate();
+    }
+
+    public int getBlocksCnt() {
+        return blockOffsets.length;
+    }
+
+    public long getBlockOffset(int block) {
+        return blockOffsets[block];
+    }
+
+    // the block holding the given frame, getBlocksCnt() when it is past the end
+    public int blockOf(long frame) {
+        if (frame >= totalFrames) {
+            return blockOffsets.length;
+        }
+        return (int) Math.min(frame / blockFrames, blockOffsets.length);
+    }
+
+    public long getDataOffset() {
+        return HEADER_SIZE;
+    }
+
+    // the blocks end where the index starts
+    public long getDataEnd() {
+        return dataEnd;
+    }
+
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+}
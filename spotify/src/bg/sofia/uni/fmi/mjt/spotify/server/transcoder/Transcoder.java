@@ -0,0 +1,140 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.transcoder;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Every song is encoded once per codec, after its first stream asks for it; the output is kept on disk across
+// restarts and is encoded again only when the song file is newer than it.
+// A whole song takes seconds to encode, so it is encoded in the background and the streams that ask meanwhile
+// get the song as it is; the command workers are never held up by it.
+public class Transcoder implements Closeable {
+    public static final int BLOCK_FRAMES = 4096;
+
+    private final Path cacheDir;
+    private final Map<AudioCodec, AudioEncoder> encoders;
+    private final Executor encodingExecutor;
+    // by output, for the modification time of the song it was encoded from; no file when the format is not supported
+    private final Map<Path, Entry> files;
+    // the outputs queued or being encoded
+    private final Set<Path> encoding;
+    // reported by the next stream that asks for the output, which then tries to encode it again
+    private final Map<Path, IOException> failures;
+
+    private record Entry(TranscodedFile file, FileTime sourceModified) {
+    }
+
+    public Transcoder(Path cacheDir, List<AudioEncoder> encoders) {
+        this(cacheDir, encoders, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Transcoder Thread");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public Transcoder(Path cacheDir, List<AudioEncoder> encoders, Executor encodingExecutor) {
+        this.cacheDir = cacheDir;
+        this.encoders = new EnumMap<>(AudioCodec.class);
+        for (AudioEncoder encoder : encoders) {
+            this.encoders.put(encoder.getCodec(), encoder);
+        }
+        this.encodingExecutor = encodingExecutor;
+        this.files = new ConcurrentHashMap<>();
+        this.encoding = ConcurrentHashMap.newKeySet();
+        this.failures = new ConcurrentHashMap<>();
+    }
+
+    // null while the song is being encoded, when there is no encoder for the codec or when the encoder does not
+    // support the format of the song
+    public TranscodedFile transcode(Path songFile, AudioCodec codec) throws IOException {
+        AudioEncoder encoder = encoders.get(codec);
+        if (encoder == null) {
+            return null;
+        }
+        Path target = cacheDir.resolve(songFile.getFileName() + "." + codec.getName());
+        FileTime sourceModified = Files.getLastModifiedTime(songFile);
+
+        Entry entry = files.get(target);
+        if (entry != null && entry.sourceModified().equals(sourceModified)) {
+            return entry.file();
+        }
+        IOException failure = failures.remove(target);
+        if (failure != null) {
+            throw failure;
+        }
+        // the output of an earlier run only has to be mapped
+        if (!encoding.contains(target) && Files.exists(target)
+                && Files.getLastModifiedTime(target).compareTo(sourceModified) >= 0) {
+            TranscodedFile file = TranscodedFile.open(target);
+            files.put(target, new Entry(file, sourceModified));
+            return file;
+        }
+
+        if (encoding.add(target)) {
+            try {
+                encodingExecutor.execute(() -> load(songFile, target, encoder, sourceModified));
+            } catch (RejectedExecutionException e) {
+                // the server is shutting down
+                encoding.remove(target);
+            }
+        }
+        entry = files.get(target);
+        return entry != null && entry.sourceModified().equals(sourceModified) ? entry.file() : null;
+    }
+
+    private void load(Path songFile, Path target, AudioEncoder encoder, FileTime sourceModified) {
+        try {
+            TranscodedFile file = encode(songFile, target, encoder) ? TranscodedFile.open(target) : null;
+            files.put(target, new Entry(file, sourceModified));
+        } catch (IOException e) {
+            failures.put(target, e);
+        } finally {
+            encoding.remove(target);
+        }
+    }
+
+    private boolean encode(Path songFile, Path target, AudioEncoder encoder) throws IOException {
+        try (AudioInputStream samples = AudioSystem.getAudioInputStream(songFile.toFile())) {
+            if (!encoder.supports(samples.getFormat())) {
+                return false;
+            }
+            Files.createDirectories(cacheDir);
+            Path temporary = Files.createTempFile(cacheDir, target.getFileName().toString(), ".tmp");
+            try {
+                TranscodedFile.write(temporary, samples, encoder, BLOCK_FRAMES);
+                // the streams of the previous output keep their mapping of it
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            return true;
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Could not read the samples of " + songFile, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (encodingExecutor instanceof ExecutorService service) {
+            // a half written output is a temporary file, the next run encodes the song again
+            service.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.pipeline;
+
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+
+// Not a unit test: compares lockstep and pipelined requests against a server running on localhost:6666.
+// Usage: RequestPipelineBenchmark [requests] [window]
+public class RequestPipelineBenchmark {
+    private static final String SERVER_HOST = "localhost";
+    private static final int SERVER_PORT = 6666;
+    private static final int DEFAULT_REQUESTS = 10_000;
+    private static final int DEFAULT_WINDOW = 256;
+    private static final String REQUEST = "top 3";
+
+    public static void main(String[] args) throws IOException {
+        int requestsCnt = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WINDOW;
+
+        try (SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress(SERVER_HOST, SERVER_PORT))) {
+            FrameDemultiplexer demultiplexer = new FrameDemultiplexer(socketChannel);
+            Thread demultiplexerThread = new Thread(demultiplexer, "Frame Demultiplexer Thread");
+            demultiplexerThread.setDaemon(true);
+            demultiplexerThread.start();
+
+            String email = "benchmark" + System.nanoTime() + "@mail.com";
+            lockstep(socketChannel, demultiplexer, List.of("register " + email + " pass", "login " + email + " pass"));
+
+            List<String> requests = Collections.nCopies(requestsCnt, REQUEST);
+            // warm up both paths before measuring
+            lockstep(socketChannel, demultiplexer, requests.subList(0, Math.min(1000, requestsCnt)));
+            new RequestPipeline(socketChannel, demultiplexer, window).execute(requests.subList(0, Math.min(1000, requestsCnt)));
+
+            long start = System.nanoTime();
+            lockstep(socketChannel, demultiplexer, requests);
+            report("lockstep", requestsCnt, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            new RequestPipeline(socketChannel, demultiplexer, window).execute(requests);
+            report("pipelined (window " + window + ")", requestsCnt, System.nanoTime() - start);
+        }
+    }
+
+    private static void lockstep(SocketChannel socketChannel, FrameDemultiplexer demultiplexer, List<String> requests)
+            throws IOException {
+        for (String request : requests) {
+            ByteBuffer frame = Frame.request(request);
+            while (frame.hasRemaining()) {
+                socketChannel.write(frame);
+            }
+            demultiplexer.nextResponse();
+        }
+    }
+
+    private static void report(String mode, int requestsCnt, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-24s %d requests in %.2f s, %.0f requests/s%n", mode, requestsCnt, seconds,
+                requestsCnt / seconds);
+    }
+}
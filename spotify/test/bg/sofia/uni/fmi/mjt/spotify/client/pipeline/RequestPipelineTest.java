@@ -0,0 +1,57 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.pipeline;
+
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer;
+import bg.sofia.uni.fmi.mjt.spotify.client.demultiplexer.FrameDemultiplexer.TaggedResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequestPipelineTest {
+
+    @Mock
+    private SocketChannel socketChannel;
+
+    @Mock
+    private FrameDemultiplexer demultiplexer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(socketChannel.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            int written = buffer.remaining();
+            buffer.position(buffer.limit());
+            return written;
+        });
+    }
+
+    @Test
+    void testExecuteMatchesRepliesById() throws IOException {
+        when(demultiplexer.nextTaggedResponse()).thenReturn(
+                new TaggedResponse(1, "second"), new TaggedResponse(0, "first"), new TaggedResponse(2, "third"));
+
+        List<String> replies = new RequestPipeline(socketChannel, demultiplexer, 2).execute(List.of("a", "b", "c"));
+
+        assertEquals(List.of("first", "second", "third"), replies, "Replies must be matched to their requests by id");
+    }
+
+    @Test
+    void testExecuteUnexpectedId() throws IOException {
+        when(demultiplexer.nextTaggedResponse()).thenReturn(new TaggedResponse(5, "unknown"));
+
+        assertThrows(IOException.class, () -> new RequestPipeline(socketChannel, demultiplexer, 2).execute(List.of("a")),
+                "A reply to a request that was not sent must throw");
+    }
+}
@@ -10,6 +10,7 @@ import bg.sofia.uni.fmi.mjt.spotify.database.units.playlist.exceptions.InvalidPl
 import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
 import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -83,9 +84,16 @@ class DatabaseImplTest {
         String playlistLine = "existing@mail.com,password123 MyHits:Title1-Artist1";
         Files.writeString(playlistsPath, playlistLine + System.lineSeparator());
 
+        Files.deleteIfExists(tempDir.resolve(DatabaseImpl.JOURNAL_FILE));
+
         database = new DatabaseImpl(dbPath, SONGS_DIR_NAME, USERS_FILE_NAME, PLAYLISTS_FILE_NAME);
     }
 
+    @AfterEach
+    void tearDown() throws IOException {
+        database.close();
+    }
+
     private void createWavFile(Path dir, String name) throws IOException {
         File wav = dir.resolve(name).toFile();
         byte[] validWavHeader = new byte[] {
@@ -106,7 +114,7 @@ class DatabaseImplTest {
     }
 
     @Test
-    void testRegisterUser() throws UserAlreadyExistsException, InvalidEmailException, NonExistingUserException, InvalidPasswordException {
+    void testRegisterUser() throws UserAlreadyExistsException, InvalidEmailException, NonExistingUserException, InvalidPasswordException, IOException {
         database.registerUser("new@mail.com", "pass");
         assertDoesNotThrow(() -> database.checkUser("new@mail.com", "pass"), "Added user should not throw");
     }
@@ -151,7 +159,14 @@ class DatabaseImplTest {
     }
 
     @Test
-    void testCreatePlaylist() throws NonExistingUserException, InvalidPlaylistInfoException, NonExistingPlaylistException {
+    void testGetSongIgnoresCase() throws NonExistingSongException {
+        Song song = database.getSong("hitsong", "POPSTAR");
+        assertEquals("HitSong", song.getTitle(), "Song lookup must ignore the case");
+        assertEquals("PopStar", song.getArtist(), "Song lookup must ignore the case");
+    }
+
+    @Test
+    void testCreatePlaylist() throws NonExistingUserException, InvalidPlaylistInfoException, NonExistingPlaylistException, IOException {
         database.createPlaylist("NewJams", "existing@mail.com");
 
         Playlist p = database.getPlaylist("NewJams", "existing@mail.com");
@@ -165,6 +180,15 @@ class DatabaseImplTest {
         assertEquals(2, database.getPlaylistSongs("MyHits", "existing@mail.com").size(), "Test playlist must have 2 songs");
     }
 
+    @Test
+    void testPlaylistTitleIgnoresCase() throws Exception {
+        database.addSong("myhits", "existing@mail.com", "Title2", "Artist2");
+        Playlist playlist = database.getPlaylist("MYHITS", "existing@mail.com");
+
+        assertEquals("MyHits", playlist.getTitle(), "Playlist lookup must ignore the case");
+        assertEquals(2, playlist.getSongs().size(), "Song must be added to the playlist regardless of the case");
+    }
+
     @Test
     void testAddSongPlaylistNotFound() {
         assertThrows(NonExistingPlaylistException.class,
@@ -182,5 +206,49 @@ class DatabaseImplTest {
 
         assertDoesNotThrow(() -> reloadedDb.checkUser("savedUser@mail.com", "secure"), "After closing database, the new user are not added");
         assertDoesNotThrow(() -> reloadedDb.getPlaylist("SavedList", "savedUser@mail.com"), "After closing database, the new playlist are not added");
+        reloadedDb.close();
+    }
+
+    @Test
+    void testJournalReplayedWithoutClose() throws Exception {
+        database.registerUser("crashed@mail.com", "secure");
+        database.createPlaylist("Unsaved", "crashed@mail.com");
+        database.addSong("Unsaved", "crashed@mail.com", "Title2", "Artist2");
+
+        DatabaseImpl reloadedDb = new DatabaseImpl(dbPath, SONGS_DIR_NAME, USERS_FILE_NAME, PLAYLISTS_FILE_NAME);
+
+        assertDoesNotThrow(() -> reloadedDb.checkUser("crashed@mail.com", "secure"), "Registered user must be replayed from the journal");
+        assertEquals(1, reloadedDb.getPlaylistSongs("Unsaved", "crashed@mail.com").size(), "Playlist songs must be replayed from the journal");
+        reloadedDb.close();
+    }
+
+    @Test
+    void testRegisterUserNotVisibleWhenJournalFails() throws IOException {
+        database.close();
+
+        assertThrows(IOException.class, () -> database.registerUser("lost@mail.com", "secure"),
+                "Register must fail when the journal cannot be appended");
+        assertThrows(NonExistingUserException.class, () -> database.checkUser("lost@mail.com", "secure"),
+                "A user that is not in the journal must not be visible");
+    }
+
+    @Test
+    void testCreatePlaylistNotVisibleWhenJournalFails() throws IOException {
+        database.close();
+
+        assertThrows(IOException.class, () -> database.createPlaylist("LostList", "existing@mail.com"),
+                "Create playlist must fail when the journal cannot be appended");
+        assertThrows(NonExistingPlaylistException.class, () -> database.getPlaylist("LostList", "existing@mail.com"),
+                "A playlist that is not in the journal must not be visible");
+    }
+
+    @Test
+    void testAddSongNotVisibleWhenJournalFails() throws Exception {
+        database.close();
+
+        assertThrows(IOException.class, () -> database.addSong("MyHits", "existing@mail.com", "Title2", "Artist2"),
+                "Add song must fail when the journal cannot be appended");
+        assertEquals(1, database.getPlaylistSongs("MyHits", "existing@mail.com").size(),
+                "A song that is not in the journal must not be in the playlist");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.index;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SongSearchIndexTest {
+
+    @Mock
+    private Song bohemian;
+
+    @Mock
+    private Song radioGaGa;
+
+    @Mock
+    private Song yellow;
+
+    private SongSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(bohemian.getTitle()).thenReturn("Bohemian Rhapsody");
+        when(bohemian.getArtist()).thenReturn("Queen");
+        when(radioGaGa.getTitle()).thenReturn("Radio Ga Ga");
+        when(radioGaGa.getArtist()).thenReturn("Queen");
+        when(yellow.getTitle()).thenReturn("Yellow");
+        when(yellow.getArtist()).thenReturn("Coldplay");
+
+        index = new SongSearchIndex();
+        index.add(bohemian);
+        index.add(radioGaGa);
+        index.add(yellow);
+    }
+
+    @Test
+    void testSearchNoFilters() {
+        assertEquals(3, index.search().size(), "No filters must return all songs");
+    }
+
+    @Test
+    void testSearchByArtistSubstring() {
+        Collection<Song> result = index.search("uee");
+
+        assertEquals(2, result.size(), "Invalid search result for an artist substring");
+        assertTrue(result.contains(bohemian) && result.contains(radioGaGa), "Invalid search result songs");
+    }
+
+    @Test
+    void testSearchCaseInsensitive() {
+        Collection<Song> result = index.search("RHAPSODY");
+
+        assertEquals(1, result.size(), "Search must ignore the case");
+        assertTrue(result.contains(bohemian), "Invalid search result song");
+    }
+
+    @Test
+    void testSearchShortFilter() {
+        assertEquals(2, index.search("y").size(), "Single letter filters must be matched as substrings");
+    }
+
+    @Test
+    void testSearchMultipleFiltersAreAnded() {
+        Collection<Song> result = index.search("queen", "radio");
+
+        assertEquals(1, result.size(), "All filters must match");
+        assertTrue(result.contains(radioGaGa), "Invalid search result song");
+    }
+
+    @Test
+    void testSearchGramsMustBeContiguous() {
+        assertTrue(index.search("radio ga ga ga").isEmpty(), "Filter with matching grams but no substring must not match");
+        assertTrue(index.search("ohemian rhapsody queen").isEmpty(), "Filters must not match across title and artist");
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(yellow);
+
+        assertTrue(index.search("yellow").isEmpty(), "Removed song must not be found");
+        assertEquals(2, index.search().size(), "Removed song must not be returned");
+    }
+}
@@ -0,0 +1,74 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.index;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StreamsLeaderboardTest {
+
+    @Mock
+    private Song first;
+
+    @Mock
+    private Song second;
+
+    @Mock
+    private Song third;
+
+    private StreamsLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new StreamsLeaderboard();
+        leaderboard.add(first);
+        leaderboard.add(second);
+        leaderboard.add(third);
+    }
+
+    @Test
+    void testTopKeepsInsertionOrderForEqualStreams() {
+        assertEquals(List.of(first, second), leaderboard.top(2), "Songs with equal streams must keep their order");
+    }
+
+    @Test
+    void testUpdateMovesSongUp() {
+        when(third.getStreamsCnt()).thenReturn(5);
+        leaderboard.update(third);
+        when(second.getStreamsCnt()).thenReturn(2);
+        leaderboard.update(second);
+
+        assertEquals(List.of(third, second, first), leaderboard.top(3), "Songs must be ordered by streams");
+    }
+
+    @Test
+    void testUpdateMovesSongDown() {
+        when(first.getStreamsCnt()).thenReturn(3);
+        leaderboard.update(first);
+        when(first.getStreamsCnt()).thenReturn(0);
+        leaderboard.update(first);
+
+        assertEquals(List.of(first, second, third), leaderboard.top(3), "Song must go back to its place");
+    }
+
+    @Test
+    void testTopLimitBiggerThanSongs() {
+        assertEquals(3, leaderboard.top(10).size(), "Top must not return more than the existing songs");
+    }
+
+    @Test
+    void testRemove() {
+        leaderboard.remove(second);
+
+        assertFalse(leaderboard.top(3).contains(second), "Removed song must not be ranked");
+    }
+}
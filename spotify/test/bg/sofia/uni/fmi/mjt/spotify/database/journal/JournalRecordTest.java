@@ -0,0 +1,31 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JournalRecordTest {
+
+    @Test
+    void testLineRoundTrip() {
+        JournalRecord record = JournalRecord.addSong("user@mail.com", "My\tList", "Back\\slash", "Two\nLines");
+
+        assertEquals(record, JournalRecord.of(record.toLine()), "Record must survive escaping");
+    }
+
+    @Test
+    void testFieldsCountIsChecked() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new JournalRecord(JournalRecord.Type.REGISTER, List.of("user@mail.com")),
+                "Records with the wrong fields count must throw");
+    }
+
+    @Test
+    void testUnknownTypeIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> JournalRecord.of("UNKNOWN\tfield"), "Unknown record types must throw");
+    }
+}
@@ -0,0 +1,99 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+    private static final int MAX_APPENDS = 1000;
+    private static final Duration APPEND_TIMEOUT = Duration.ofSeconds(5);
+
+    private Path testDir;
+    private Path journalFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("spotify-journal-test");
+        journalFile = testDir.resolve("journal.log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(testDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static JournalRecord record(int idx) {
+        return JournalRecord.register("user" + idx + "@mail.com", "password");
+    }
+
+    private List<JournalRecord> replayed() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        new Journal(journalFile, Integer.MAX_VALUE, () -> { }).replay(records::add);
+        return records;
+    }
+
+    @Test
+    void testFailedSnapshotKeepsSegment() throws Exception {
+        Semaphore snapshots = new Semaphore(0);
+        Journal journal = new Journal(journalFile, 1, () -> {
+            snapshots.release();
+            throw new IOException("Disk is full");
+        });
+        journal.open();
+
+        List<JournalRecord> appended = new ArrayList<>();
+        appended.add(record(0));
+        journal.append(appended.get(0));
+        assertTrue(snapshots.tryAcquire(5, TimeUnit.SECONDS), "Reaching the threshold must start a snapshot");
+
+        // keep appending until the failed compaction is retried
+        while (!snapshots.tryAcquire() && appended.size() < MAX_APPENDS) {
+            appended.add(record(appended.size()));
+            journal.append(appended.get(appended.size() - 1));
+            Thread.sleep(1);
+        }
+        journal.close();
+
+        assertEquals(appended, replayed(), "Records of a segment that was never snapshotted must not be lost");
+    }
+
+    @Test
+    void testFailedReopenFailsAppends() throws Exception {
+        Path journalDir = Files.createDirectory(testDir.resolve("journal"));
+        Journal journal = new Journal(journalDir.resolve("journal.log"), 1, () -> { });
+        journal.open();
+        Files.delete(journalDir.resolve("journal.log"));
+        Files.delete(journalDir);
+
+        // the rotation fails and the journal cannot be reopened in the missing directory
+        assertTimeoutPreemptively(APPEND_TIMEOUT, () -> journal.append(record(0)), "First append must be written");
+        assertThrows(IOException.class, () -> assertTimeoutPreemptively(APPEND_TIMEOUT, () -> journal.append(record(1))),
+                "Append must fail when the journal cannot be reopened");
+
+        Files.createDirectory(journalDir);
+        assertDoesNotThrow(() -> assertTimeoutPreemptively(APPEND_TIMEOUT, () -> journal.append(record(2))),
+                "The writer must survive a failed reopen");
+        journal.close();
+    }
+}
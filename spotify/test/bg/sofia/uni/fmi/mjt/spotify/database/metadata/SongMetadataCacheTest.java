@@ -0,0 +1,62 @@
+package bg.sofia.uni.fmi.mjt.spotify.database.metadata;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.metadata.SongMetadataCache.SongMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SongMetadataCacheTest {
+    private static final String SONG = "Title-Artist.wav";
+    private static final SongMetadata METADATA = new SongMetadata(44, 1000, "PCM_SIGNED 44100.0 16 1 2 44100.0 false", 2);
+
+    private Path cacheFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheFile = Files.createTempFile("songs-metadata", ".txt");
+        Files.delete(cacheFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(cacheFile);
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        SongMetadataCache cache = new SongMetadataCache(cacheFile);
+        cache.put(SONG, METADATA);
+        cache.save();
+
+        SongMetadataCache reloaded = new SongMetadataCache(cacheFile);
+        reloaded.load();
+
+        assertEquals(METADATA, reloaded.get(SONG, 44, 1000), "Saved metadata must be loaded back");
+    }
+
+    @Test
+    void testGetStaleEntry() {
+        SongMetadataCache cache = new SongMetadataCache(cacheFile);
+        cache.put(SONG, METADATA);
+
+        assertNull(cache.get(SONG, 45, 1000), "Metadata of a file with another size must not be returned");
+        assertNull(cache.get(SONG, 44, 1001), "Metadata of a modified file must not be returned");
+    }
+
+    @Test
+    void testRetainAll() {
+        SongMetadataCache cache = new SongMetadataCache(cacheFile);
+        cache.put(SONG, METADATA);
+        cache.retainAll(List.of("Other-Artist.wav"));
+
+        assertNull(cache.get(SONG, 44, 1000), "Metadata of removed files must be dropped");
+    }
+}
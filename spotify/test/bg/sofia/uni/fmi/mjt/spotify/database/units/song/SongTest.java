@@ -8,12 +8,16 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 class SongTest {
 
@@ -103,6 +107,57 @@ class SongTest {
                 () -> Song.of(folderPath, "Artist-Title.mp3"), "Invalid format");
     }
 
+    @Test
+    void testBytesPerSecond() throws InvalidSongException {
+        String folderPath = testDir.toString() + File.separator;
+        Song song = Song.of(folderPath, TEST_SONG);
+
+        assertEquals(44100 * 2, song.getBytesPerSecond(), "44.1 kHz mono 16 bit is 88200 bytes per second");
+    }
+
+    @Test
+    void testBytesPerSecondNotSpecified() throws InvalidSongException {
+        Song song = Song.of(TEST_SONG, "PCM_SIGNED -1.0 16 2 4 -1.0 false", 4);
+
+        assertEquals(0, song.getBytesPerSecond(), "An unspecified frame rate must not be paced");
+    }
+
+    @Test
+    void testSourceSharedByStreams() throws InvalidSongException, IOException {
+        String folderPath = testDir.toString() + File.separator;
+        Song song = Song.of(folderPath, TEST_SONG);
+        Path file = testDir.resolve(TEST_SONG);
+
+        ByteBuffer first = song.openSource(file);
+        ByteBuffer second = song.openSource(file);
+        first.position(10);
+
+        assertEquals(2, song.getSourceRefsCnt(), "Every stream must hold a reference to the source");
+        assertEquals(Files.size(file), second.remaining(), "Every view must cover the whole file");
+        assertEquals(0, second.position(), "The views must not share their positions");
+        assertEquals(82, second.get(0), "The view must hold the file content");
+        assertThrows(ReadOnlyBufferException.class, () -> second.put(0, (byte) 0), "A view must be read only");
+
+        song.closeSource();
+        song.closeSource();
+        song.closeSource();
+        assertEquals(0, song.getSourceRefsCnt(), "Closing more sources than opened must not go below 0");
+    }
+
+    @Test
+    void testOpenSourceNotBlockedByLeaderboard() throws InvalidSongException {
+        String folderPath = testDir.toString() + File.separator;
+        Song song = Song.of(folderPath, TEST_SONG);
+        Path file = testDir.resolve(TEST_SONG);
+
+        // the leaderboard locks the song while it updates the ranking
+        synchronized (song) {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> song.openSource(file),
+                    "Mapping the file must not wait for the leaderboard");
+        }
+        song.closeSource();
+    }
+
     @Test
     void testStream() throws InvalidSongException {
         String folderPath = testDir.toString() + File.separator;
@@ -0,0 +1,127 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.audio;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LpcCodecTest {
+    private static final int FRAMES = 4096;
+
+    private static int[][] sine(int frames) {
+        int[][] samples = new int[2][frames];
+        for (int i = 0; i < frames; ++i) {
+            samples[0][i] = (int) (12000 * Math.sin(i * 2 * Math.PI * 440 / 44100));
+            samples[1][i] = (int) (11000 * Math.sin(i * 2 * Math.PI * 440 / 44100 + 0.1));
+        }
+        return samples;
+    }
+
+    private static byte[] pcm(int[][] samples, int frames, boolean bigEndian) {
+        ByteBuffer pcm = ByteBuffer.allocate(frames * samples.length * Short.BYTES)
+                .order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; ++i) {
+            for (int[] channel : samples) {
+                pcm.putShort((short) channel[i]);
+            }
+        }
+        return pcm.array();
+    }
+
+    private static byte[] roundTrip(int[][] samples, int frames, boolean bigEndian) throws MalformedMessageException {
+        return new LpcDecoder(samples.length, bigEndian).decode(LpcEncoder.encodeBlock(samples, frames));
+    }
+
+    @Test
+    void testStereoRoundTrip() throws MalformedMessageException {
+        int[][] samples = sine(FRAMES);
+
+        assertArrayEquals(pcm(samples, FRAMES, false), roundTrip(samples, FRAMES, false),
+                "The codec must be lossless");
+        assertArrayEquals(pcm(samples, FRAMES, true), roundTrip(samples, FRAMES, true),
+                "The samples must be decoded in the byte order of the song");
+    }
+
+    @Test
+    void testExtremeSamplesRoundTrip() throws MalformedMessageException {
+        Random random = new Random(42);
+        int[][] samples = new int[2][FRAMES];
+        for (int i = 0; i < FRAMES; ++i) {
+            samples[0][i] = i % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+            samples[1][i] = random.nextInt(1 << 16) + Short.MIN_VALUE;
+        }
+
+        assertArrayEquals(pcm(samples, FRAMES, false), roundTrip(samples, FRAMES, false),
+                "Samples that cannot be predicted must be sent as they are");
+        assertTrue(LpcEncoder.encodeBlock(samples, FRAMES).length <= FRAMES * 4 + 16,
+                "Samples that cannot be predicted must not grow by more than the block header");
+    }
+
+    @Test
+    void testSpikeRoundTrip() throws MalformedMessageException {
+        int[][] samples = new int[1][FRAMES];
+        samples[0][FRAMES / 2] = Short.MAX_VALUE;
+
+        assertArrayEquals(pcm(samples, FRAMES, false), roundTrip(samples, FRAMES, false),
+                "Residuals too large for the Rice code must be escaped");
+    }
+
+    @Test
+    void testMonoAndShortBlocksRoundTrip() throws MalformedMessageException {
+        int[][] samples = {{0, -1, 3}};
+
+        assertArrayEquals(pcm(samples, 3, false), roundTrip(samples, 3, false),
+                "Blocks shorter than the predictor order must be decodable");
+    }
+
+    @Test
+    void testCompression() {
+        int[][] samples = sine(FRAMES);
+        int[][] silence = new int[2][FRAMES];
+
+        assertTrue(LpcEncoder.encodeBlock(samples, FRAMES).length < FRAMES * 4 / 2,
+                "Predictable samples must be encoded in less than half of their size");
+        assertTrue(LpcEncoder.encodeBlock(silence, FRAMES).length < FRAMES / 2,
+                "Silence must be encoded in about a bit per sample");
+    }
+
+    @Test
+    void testDecodeSplitBlocks() throws MalformedMessageException {
+        int[][] samples = sine(2 * FRAMES);
+        int[][] first = {Arrays.copyOf(samples[0], FRAMES), Arrays.copyOf(samples[1], FRAMES)};
+        int[][] second = {Arrays.copyOfRange(samples[0], FRAMES, 2 * FRAMES),
+            Arrays.copyOfRange(samples[1], FRAMES, 2 * FRAMES)};
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.writeBytes(LpcEncoder.encodeBlock(first, FRAMES));
+        stream.writeBytes(LpcEncoder.encodeBlock(second, FRAMES));
+        byte[] encoded = stream.toByteArray();
+
+        LpcDecoder decoder = new LpcDecoder(2, false);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        for (int i = 0; i < encoded.length; i += 1000) {
+            decoded.writeBytes(decoder.decode(Arrays.copyOfRange(encoded, i, Math.min(i + 1000, encoded.length))));
+        }
+
+        assertArrayEquals(pcm(samples, 2 * FRAMES, false), decoded.toByteArray(),
+                "Blocks split over several chunks must be decoded once they are complete");
+    }
+
+    @Test
+    void testDecodeInvalidLength() throws MalformedMessageException {
+        LpcDecoder decoder = new LpcDecoder(2, false);
+
+        assertThrows(MalformedMessageException.class, () -> decoder.decode(new byte[] {-1, -1, -1, -1}),
+                "A negative block length must be rejected");
+        assertEquals(0, new LpcDecoder(2, false).decode(new byte[] {0, 0}).length,
+                "Nothing must be decoded before a whole block has arrived");
+    }
+}
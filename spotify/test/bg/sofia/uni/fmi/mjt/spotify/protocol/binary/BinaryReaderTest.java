@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.spotify.protocol.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryReaderTest {
+
+    private BinaryReader readerOf(byte[] bytes) {
+        return new BinaryReader(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    void testReadWrittenMessage() throws MalformedMessageException {
+        byte[] message = new BinaryWriter()
+                .opcode(Opcode.ADD_SONG_TO)
+                .string("Caf\u00e9 del Mar")
+                .varint(0)
+                .varint(127)
+                .varint(128)
+                .varint(Integer.MAX_VALUE)
+                .toByteArray();
+
+        BinaryReader reader = readerOf(message);
+        assertEquals(Opcode.ADD_SONG_TO, reader.opcode(), "The opcode must be read back");
+        assertEquals("Caf\u00e9 del Mar", reader.string(), "Non ASCII strings must be read back");
+        assertEquals(0, reader.varint(), "Zero must be read back");
+        assertEquals(127, reader.varint(), "The largest single byte varint must be read back");
+        assertEquals(128, reader.varint(), "The smallest two byte varint must be read back");
+        assertEquals(Integer.MAX_VALUE, reader.varint(), "The largest varint must be read back");
+        assertFalse(reader.hasRemaining(), "The whole message must be consumed");
+    }
+
+    @Test
+    void testSmallVarintTakesOneByte() {
+        assertEquals(1, new BinaryWriter().varint(100).toByteArray().length, "Small varints must take a single byte");
+    }
+
+    @Test
+    void testReadTruncatedString() {
+        byte[] message = new BinaryWriter().string("queen").toByteArray();
+        byte[] truncated = new byte[message.length - 1];
+        System.arraycopy(message, 0, truncated, 0, truncated.length);
+
+        assertThrows(MalformedMessageException.class, () -> readerOf(truncated).string(),
+                "A string longer than the message must be rejected");
+    }
+
+    @Test
+    void testReadTooLongVarint() {
+        byte[] message = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+
+        assertThrows(MalformedMessageException.class, () -> readerOf(message).varint(),
+                "Varints longer than five bytes must be rejected");
+    }
+
+    @Test
+    void testReadOverflowingVarint() {
+        // the payload of the fifth byte is shifted past the 32 bits of an int
+        byte[] message = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10};
+
+        assertThrows(MalformedMessageException.class, () -> readerOf(message).varint(),
+                "Varints that do not fit in an int must be rejected");
+    }
+
+    @Test
+    void testReadUnknownOpcode() {
+        assertThrows(MalformedMessageException.class, () -> readerOf(new byte[] {(byte) 0x7F}).opcode(),
+                "Unknown opcodes must be rejected");
+    }
+}
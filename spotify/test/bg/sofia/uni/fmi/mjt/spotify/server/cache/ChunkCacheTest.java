@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkCacheTest {
+    private static final String SONG = "Song-Artist.wav";
+    private static final int CHUNKS_CNT = 4;
+
+    private final ChunkCache cache = new ChunkCache((long) CHUNKS_CNT * ChunkCache.CHUNK_SIZE);
+    private final List<Long> loadedOffsets = new ArrayList<>();
+
+    // every byte of a chunk holds the index of its chunk
+    private void load(ByteBuffer target, long offset) {
+        loadedOffsets.add(offset);
+        while (target.hasRemaining()) {
+            target.put((byte) (offset / ChunkCache.CHUNK_SIZE));
+        }
+    }
+
+    private ChunkCache.Chunk acquireAndRelease(String song, long index) throws IOException {
+        ChunkCache.Chunk chunk = cache.acquire(song, index, this::load);
+        if (chunk != null) {
+            cache.release(chunk);
+        }
+        return chunk;
+    }
+
+    @Test
+    void testChunkLoadedOnce() throws IOException {
+        acquireAndRelease(SONG, 2);
+        ChunkCache.Chunk chunk = cache.acquire(SONG, 2, this::load);
+
+        assertNotNull(chunk, "A cached chunk must be returned");
+        assertEquals(List.of(2L * ChunkCache.CHUNK_SIZE), loadedOffsets, "The chunk must be read from the file once");
+        assertEquals(ChunkCache.CHUNK_SIZE, chunk.data().remaining(), "The whole chunk must be readable");
+        assertEquals(2, chunk.data().get(0), "The chunk must hold the loaded data");
+        assertEquals(1, cache.getHitsCnt(), "The hit must be counted");
+        assertEquals(1, cache.getMissesCnt(), "The miss must be counted");
+        assertEquals(0.5, cache.getHitRatio(), "Invalid hit ratio");
+    }
+
+    @Test
+    void testShortLastChunk() throws IOException {
+        ChunkCache.Chunk chunk = cache.acquire(SONG, 0, (target, offset) -> target.put(new byte[10]));
+
+        assertEquals(10, chunk.data().remaining(), "The chunk must end where the file ends");
+    }
+
+    @Test
+    void testPopularChunkSurvivesScan() throws IOException {
+        for (int i = 0; i < 5; ++i) {
+            acquireAndRelease(SONG, 0);
+        }
+        for (int i = 0; i < 10 * CHUNKS_CNT; ++i) {
+            acquireAndRelease("Other-Band.wav", i);
+        }
+        loadedOffsets.clear();
+        acquireAndRelease(SONG, 0);
+
+        assertEquals(List.of(), loadedOffsets, "A frequently streamed chunk must not be evicted by one-off chunks");
+        assertEquals(CHUNKS_CNT, cache.getChunksCnt(), "The cache must not grow over its limit");
+    }
+
+    @Test
+    void testPinnedChunkBufferNotReused() throws IOException {
+        ChunkCache single = new ChunkCache(ChunkCache.CHUNK_SIZE);
+        ChunkCache.Chunk pinned = single.acquire(SONG, 0, this::load);
+
+        assertNull(single.acquire(SONG, 1, this::load),
+                "The only buffer must not be handed out while a stream is writing from it");
+
+        single.release(pinned);
+        assertNotNull(single.acquire(SONG, 1, this::load), "The buffer must be reused once it is released");
+    }
+
+    @Test
+    void testFailedLoadNotCached() {
+        assertThrows(IOException.class, () -> cache.acquire(SONG, 0, (target, offset) -> {
+            throw new IOException("disk error");
+        }), "The error of the loader must be passed on");
+        assertEquals(0, cache.getChunksCnt(), "A chunk that could not be read must not be cached");
+    }
+}
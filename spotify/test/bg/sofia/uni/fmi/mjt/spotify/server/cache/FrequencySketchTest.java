@@ -0,0 +1,45 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencySketchTest {
+    private static final int ENTRIES = 64;
+
+    private final FrequencySketch sketch = new FrequencySketch(ENTRIES);
+
+    @Test
+    void testFrequencyCounted() {
+        for (int i = 0; i < 3; ++i) {
+            sketch.increment("hot");
+        }
+        sketch.increment("cold");
+
+        assertEquals(3, sketch.frequency("hot"), "Every increment must be counted");
+        assertEquals(1, sketch.frequency("cold"), "Every key must have its own count");
+        assertEquals(0, sketch.frequency("unseen"), "A key never seen must have no count");
+    }
+
+    @Test
+    void testFrequencySaturates() {
+        for (int i = 0; i < 100; ++i) {
+            sketch.increment("hot");
+        }
+
+        assertEquals(15, sketch.frequency("hot"), "A count must stop at the maximum of its 4 bits");
+    }
+
+    @Test
+    void testOldFrequenciesFade() {
+        for (int i = 0; i < 8; ++i) {
+            sketch.increment("old");
+        }
+        for (int i = 0; i < 10 * ENTRIES; ++i) {
+            sketch.increment(i);
+        }
+
+        assertTrue(sketch.frequency("old") < 8, "The counts must be halved after a sample of increments");
+    }
+}
@@ -0,0 +1,64 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.cache;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+    private static final long MAX_BYTES = 1024;
+    private static final long VERSION = 1;
+
+    private final ResponseCache cache = new ResponseCache(MAX_BYTES);
+
+    @Test
+    void testGetCachedResponse() {
+        byte[] response = {1, 2, 3};
+        cache.put(Encoding.TEXT, "top 5", response, VERSION, ResponseCache.NO_TTL);
+
+        assertArrayEquals(response, cache.get(Encoding.TEXT, "top 5", VERSION), "The cached reply must be returned");
+        assertNull(cache.get(Encoding.BINARY, "top 5", VERSION), "Replies must be cached per encoding");
+        assertEquals(1, cache.getHitsCnt(), "The hit must be counted");
+        assertEquals(1, cache.getMissesCnt(), "The miss must be counted");
+    }
+
+    @Test
+    void testCatalogueChangeInvalidates() {
+        cache.put(Encoding.TEXT, "search queen", new byte[] {1}, VERSION, ResponseCache.NO_TTL);
+
+        assertNull(cache.get(Encoding.TEXT, "search queen", VERSION + 1),
+                "A reply cached for an older catalogue must not be returned");
+        assertEquals(0, cache.getSizeBytes(), "The stale reply must be removed");
+    }
+
+    @Test
+    void testExpiredResponse() {
+        cache.put(Encoding.TEXT, "top 5", new byte[] {1}, VERSION, 0);
+
+        assertNull(cache.get(Encoding.TEXT, "top 5", VERSION), "An expired reply must not be returned");
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        byte[] response = new byte[300];
+        cache.put(Encoding.TEXT, "search a", response, VERSION, ResponseCache.NO_TTL);
+        cache.put(Encoding.TEXT, "search b", response, VERSION, ResponseCache.NO_TTL);
+        cache.get(Encoding.TEXT, "search a", VERSION);
+        cache.put(Encoding.TEXT, "search c", response, VERSION, ResponseCache.NO_TTL);
+
+        assertNotNull(cache.get(Encoding.TEXT, "search a", VERSION), "A recently used reply must be kept");
+        assertNull(cache.get(Encoding.TEXT, "search b", VERSION), "The least recently used reply must be evicted");
+        assertTrue(cache.getSizeBytes() <= MAX_BYTES, "The cache must stay within its size");
+    }
+
+    @Test
+    void testResponseLargerThanCacheNotCached() {
+        cache.put(Encoding.TEXT, "search", new byte[(int) MAX_BYTES], VERSION, ResponseCache.NO_TTL);
+
+        assertNull(cache.get(Encoding.TEXT, "search", VERSION), "A reply larger than the cache must not be cached");
+    }
+}
@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// Not a unit test: measures the time and the heap allocated per parsed command.
+// Usage: CommandFactoryBenchmark [iterations]
+public class CommandFactoryBenchmark {
+    private static final int DEFAULT_ITERATIONS = 2_000_000;
+    private static final int WARM_UP_ITERATIONS = 500_000;
+    private static final List<String> INPUTS = List.of(
+            "login user@mail.com pass123",
+            "search we will rock you",
+            "top 10",
+            "play Bohemian Rhapsody - Queen",
+            "add-song-to favourites : Bohemian Rhapsody - Queen",
+            "show-playlist favourites",
+            "stop");
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (String input : INPUTS) {
+            parse(input, WARM_UP_ITERATIONS);
+
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int created = parse(input, iterations);
+            long nanos = System.nanoTime() - start;
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            System.out.printf("%-52s %6.1f ns/op %6d B/op%s%n", input, (double) nanos / iterations,
+                    allocated / iterations, created == iterations ? "" : " (not created)");
+        }
+    }
+
+    private static int parse(String input, int iterations) {
+        int created = 0;
+        for (int i = 0; i < iterations; ++i) {
+            if (CommandFactory.create(input, null, null) != null) {
+                ++created;
+            }
+        }
+        return created;
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -67,6 +68,31 @@ class CommandFactoryTest {
         assertInstanceOf(PlayCommand.class, cmd, "Play command should have been created");
     }
 
+    @Test
+    void testCreatePlayCommandWithStartSecond() {
+        PlayCommand cmd = (PlayCommand) CommandFactory.create(PlayCommand.COMMAND + " Title - Artist @90", user, server);
+
+        assertEquals("Title - Artist", cmd.getSongStr(), "The start second must not be part of the song");
+        assertEquals(90, cmd.getStartSeconds(), "The start second must be parsed");
+    }
+
+    @Test
+    void testCreatePlayCommandWithAtInTitle() {
+        PlayCommand cmd = (PlayCommand) CommandFactory.create(PlayCommand.COMMAND + " Live @ Wembley - Queen",
+                user, server);
+
+        assertEquals("Live @ Wembley - Queen", cmd.getSongStr(), "An '@' without a number must stay in the title");
+        assertEquals(0, cmd.getStartSeconds(), "A song without a start second must play from the start");
+    }
+
+    @Test
+    void testCreatePlayCommandWithoutSong() {
+        assertNull(CommandFactory.create(PlayCommand.COMMAND + " @90", user, server),
+                "Play command without a song should not have been created");
+        assertNull(CommandFactory.create(PlayCommand.COMMAND + " Title - Artist @99999999999", user, server),
+                "Play command with a start second out of range should not have been created");
+    }
+
     @Test
     void testCreateSearchCommand() {
         String input = SearchCommand.COMMAND + " metallica";
@@ -118,6 +144,27 @@ class CommandFactoryTest {
         assertInstanceOf(AddSongToCommand.class, cmd, "Add song to command should have been created");
     }
 
+    @Test
+    void testCreateCommandWithUnexpectedArguments() {
+        assertNull(CommandFactory.create(StopCommand.COMMAND + " now", user, server),
+                "Stop command with arguments should not have been created");
+        assertNull(CommandFactory.create(TopSongsCommand.COMMAND + " 5 6", user, server),
+                "Top songs command with two limits should not have been created");
+    }
+
+    @Test
+    void testCreateAddSongToCommandWithoutSong() {
+        assertNull(CommandFactory.create(AddSongToCommand.COMMAND + " MyPlaylist", user, server),
+                "Add song to command without a song should not have been created");
+    }
+
+    @Test
+    void testSearchCacheKeyIgnoresFilterOrderAndCase() {
+        Command first = CommandFactory.create(SearchCommand.COMMAND + " Queen rock", user, server);
+        Command second = CommandFactory.create(SearchCommand.COMMAND + " ROCK queen queen", user, server);
+        assertEquals(first.getCacheKey(), second.getCacheKey(), "Equivalent searches should share a cache key");
+    }
+
     @Test
     void testCreateTrimsWhitespace() {
         String validInput = PlayCommand.COMMAND + "    MySong";
@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CommandTokenizerTest {
+
+    @Test
+    void testCommandTypeIgnoresCase() {
+        assertEquals(CommandType.ADD_SONG_TO, new CommandTokenizer("  Add-Song-TO list : song").commandType(),
+                "The command name must be matched ignoring case and leading whitespace");
+    }
+
+    @Test
+    void testCommandTypeUnknown() {
+        assertNull(new CommandTokenizer("playy song").commandType(), "Only whole command names must match");
+    }
+
+    @Test
+    void testTokensSkipRepeatedWhitespace() {
+        CommandTokenizer tokenizer = new CommandTokenizer("search  we \t will   ");
+        tokenizer.commandType();
+
+        assertEquals(2, tokenizer.countTokens(), "Counting must skip repeated whitespace");
+        assertEquals("we", tokenizer.next(), "Counting must not consume the tokens");
+        assertEquals("will", tokenizer.next(), "Tokens must be returned in order");
+        assertFalse(tokenizer.hasNext(), "Trailing whitespace must not be a token");
+        assertNull(tokenizer.next(), "There must be no token after the last one");
+    }
+
+    @Test
+    void testNextUntilDelimiter() {
+        CommandTokenizer tokenizer = new CommandTokenizer("add-song-to my list  :  Song - Artist ");
+        tokenizer.commandType();
+
+        assertEquals("my list", tokenizer.nextUntil(':'), "The text before the delimiter must be stripped");
+        assertEquals("Song - Artist", tokenizer.rest(), "The text after the delimiter must be stripped");
+    }
+
+    @Test
+    void testNextUntilMissingDelimiter() {
+        CommandTokenizer tokenizer = new CommandTokenizer("add-song-to my list");
+        tokenizer.commandType();
+
+        assertNull(tokenizer.nextUntil(':'), "A missing delimiter must be reported with null");
+    }
+
+    @Test
+    void testNextIntInvalid() {
+        CommandTokenizer tokenizer = new CommandTokenizer("top ten");
+        tokenizer.commandType();
+
+        assertThrows(NumberFormatException.class, tokenizer::nextInt, "Non numeric tokens must be rejected");
+    }
+}
@@ -0,0 +1,88 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.commands.binary;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.BinaryWriter;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.Opcode;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.LoginCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.PlayCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.SearchCommand;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.TopSongsCommand;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(MockitoExtension.class)
+class BinaryCommandDecoderTest {
+
+    @Mock
+    private Server server;
+
+    @Mock
+    private User user;
+
+    private Command decode(BinaryWriter writer) throws MalformedMessageException, InvalidEmailException {
+        return BinaryCommandDecoder.decode(ByteBuffer.wrap(writer.toByteArray()), user, server);
+    }
+
+    @Test
+    void testDecodeLogin() throws MalformedMessageException, InvalidEmailException {
+        Command command = decode(new BinaryWriter().opcode(Opcode.LOGIN).string("test@mail.com").string("pass123"));
+        assertInstanceOf(LoginCommand.class, command, "Login command should have been decoded");
+    }
+
+    @Test
+    void testDecodeSearch() throws MalformedMessageException, InvalidEmailException {
+        Command command = decode(new BinaryWriter().opcode(Opcode.SEARCH).varint(2).string("we will").string("rock"));
+        assertInstanceOf(SearchCommand.class, command, "Search command should have been decoded");
+    }
+
+    @Test
+    void testDecodeTop() throws MalformedMessageException, InvalidEmailException {
+        Command command = decode(new BinaryWriter().opcode(Opcode.TOP).varint(5));
+        assertInstanceOf(TopSongsCommand.class, command, "Top command should have been decoded");
+    }
+
+    @Test
+    void testDecodePlay() throws MalformedMessageException, InvalidEmailException {
+        Command command = decode(new BinaryWriter().opcode(Opcode.PLAY).varint(3));
+        assertInstanceOf(PlayCommand.class, command, "Play command should have been decoded");
+    }
+
+    @Test
+    void testDecodePlayWithStartSecond() throws MalformedMessageException, InvalidEmailException {
+        PlayCommand command = (PlayCommand) decode(new BinaryWriter().opcode(Opcode.PLAY).varint(3).varint(90));
+        assertEquals(90, command.getStartSeconds(), "The optional start second should have been decoded");
+    }
+
+    @Test
+    void testDecodeTruncatedRequest() {
+        assertThrows(MalformedMessageException.class,
+                () -> decode(new BinaryWriter().opcode(Opcode.LOGIN).string("test@mail.com")),
+                "A request missing a field must be rejected");
+    }
+
+    @Test
+    void testDecodeTrailingBytes() {
+        assertThrows(MalformedMessageException.class,
+                () -> decode(new BinaryWriter().opcode(Opcode.TOP).varint(5).varint(1)),
+                "A request with unexpected trailing bytes must be rejected");
+    }
+
+    @Test
+    void testDecodeTooManyFilters() {
+        assertThrows(MalformedMessageException.class,
+                () -> decode(new BinaryWriter().opcode(Opcode.SEARCH).varint(1000)),
+                "A search with too many filters must be rejected");
+    }
+}
@@ -0,0 +1,236 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Encoding;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.BinaryWriter;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.Opcode;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.concretecommands.TopSongsCommand;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientConnectionTest {
+
+    @Mock
+    private SelectionKey key;
+
+    @Mock
+    private SocketChannel channel;
+
+    private ByteBuffer incoming;
+    private ClientConnection connection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(key.channel()).thenReturn(channel);
+        incoming = ByteBuffer.allocate(0);
+        when(channel.read(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            if (!incoming.hasRemaining()) {
+                return -1;
+            }
+            ByteBuffer target = invocation.getArgument(0);
+            int cnt = Math.min(target.remaining(), incoming.remaining());
+            target.put(incoming.slice(incoming.position(), cnt));
+            incoming.position(incoming.position() + cnt);
+            return cnt;
+        });
+        connection = new ClientConnection(key);
+    }
+
+    private void receive(ByteBuffer... frames) {
+        int size = 0;
+        for (ByteBuffer frame : frames) {
+            size += frame.remaining();
+        }
+        incoming = ByteBuffer.allocate(size);
+        for (ByteBuffer frame : frames) {
+            incoming.put(frame);
+        }
+        incoming.flip();
+    }
+
+    @Test
+    void testReadPipelinedRequests() throws IOException {
+        receive(Frame.request("search queen"), Frame.request("top 5"));
+
+        assertEquals(List.of(Request.untagged("search queen"), Request.untagged("top 5")), connection.readRequests(),
+                "All requests of a single read must be returned in order");
+    }
+
+    @Test
+    void testReadPartialRequest() throws IOException {
+        ByteBuffer frame = Frame.request("top 5");
+        receive(frame.slice(0, 3));
+        assertTrue(connection.readRequests().isEmpty(), "A partial header must not be returned as a request");
+
+        receive(frame.slice(3, frame.remaining() - 3));
+        assertEquals(List.of(Request.untagged("top 5")), connection.readRequests(),
+                "The request must be reassembled from both reads");
+    }
+
+    @Test
+    void testReadRequestLargerThanBuffer() throws IOException {
+        String large = "search " + "a".repeat(5000);
+        receive(Frame.request(large));
+
+        List<Request> requests;
+        do {
+            requests = connection.readRequests();
+        } while (requests.isEmpty());
+
+        assertEquals(List.of(Request.untagged(large)), requests, "Requests larger than the read buffer must be reassembled");
+    }
+
+    @Test
+    void testReadTaggedRequests() throws IOException {
+        receive(Frame.taggedRequest(7, "top 5"), Frame.request("search queen"));
+
+        assertEquals(List.of(new Request(7, "top 5"), Request.untagged("search queen")), connection.readRequests(),
+                "Tagged requests must keep their id");
+    }
+
+    @Test
+    void testReadInvalidFrame() {
+        receive(Frame.response("not a request"));
+
+        assertThrows(IOException.class, () -> connection.readRequests(), "Non request frames must be rejected");
+    }
+
+    @Test
+    void testNegotiateBinaryEncoding() throws Exception {
+        byte[] payload = new BinaryWriter().opcode(Opcode.TOP).varint(5).toByteArray();
+        receive(Frame.hello(Encoding.BINARY), Frame.request(""), Frame.of(FrameType.REQUEST, payload));
+
+        List<Request> requests = connection.readRequests();
+        assertEquals(Encoding.BINARY, connection.getEncoding(), "The negotiated encoding must be used");
+        assertTrue(connection.hasPendingFrames(), "The negotiation must be answered");
+        assertEquals(2, requests.size(), "The requests after the negotiation must be returned");
+        assertTrue(requests.get(1).isBinary(), "Requests after the negotiation must be binary");
+        assertInstanceOf(TopSongsCommand.class, requests.get(1).binary().create(null, null),
+                "The binary request must be decoded when it is read");
+    }
+
+    @Test
+    void testMalformedBinaryRequestFailsInItsTurn() throws IOException {
+        byte[] payload = new BinaryWriter().opcode(Opcode.TOP).toByteArray();
+        receive(Frame.hello(Encoding.BINARY), Frame.of(FrameType.REQUEST, payload));
+
+        List<Request> requests = connection.readRequests();
+        assertEquals(1, requests.size(), "A malformed request must not close the connection");
+        assertThrows(MalformedMessageException.class, () -> requests.get(0).binary().create(null, null),
+                "A malformed request must fail when it is executed");
+    }
+
+    @Test
+    void testNegotiateAudioCodec() throws IOException {
+        receive(Frame.hello(Encoding.TEXT, AudioCodec.LPC), Frame.request("play Song-Artist"));
+
+        List<Request> requests = connection.readRequests();
+        assertEquals(AudioCodec.LPC, connection.getAudioCodec(), "The negotiated codec must be used");
+        assertEquals(Encoding.TEXT, connection.getEncoding(), "The encoding must be negotiated with the codec");
+        assertEquals(1, requests.size(), "The requests after the negotiation must be returned");
+    }
+
+    @Test
+    void testAudioCodecNotNegotiated() throws IOException {
+        receive(Frame.hello(Encoding.BINARY));
+
+        connection.readRequests();
+        assertEquals(AudioCodec.PCM, connection.getAudioCodec(), "Songs must be streamed as they are by default");
+    }
+
+    @Test
+    void testNegotiateAfterFirstRequest() {
+        receive(Frame.request("top 5"), Frame.hello(Encoding.BINARY));
+
+        assertThrows(IOException.class, () -> connection.readRequests(),
+                "The encoding must not change after the first request");
+    }
+
+    @Test
+    void testReadEndOfStream() throws IOException {
+        assertNull(connection.readRequests(), "A closed stream must be reported with null");
+    }
+
+    private AtomicInteger trackInterestOps() {
+        AtomicInteger ops = new AtomicInteger(SelectionKey.OP_READ);
+        when(key.isValid()).thenReturn(true);
+        when(key.interestOps()).thenAnswer(invocation -> ops.get());
+        when(key.interestOps(anyInt())).thenAnswer(invocation -> {
+            ops.set(invocation.getArgument(0));
+            return key;
+        });
+        return ops;
+    }
+
+    private static boolean reads(AtomicInteger ops) {
+        return (ops.get() & SelectionKey.OP_READ) != 0;
+    }
+
+    @Test
+    void testFullRequestQueueStopsReading() throws IOException {
+        AtomicInteger ops = trackInterestOps();
+        ByteBuffer[] frames = new ByteBuffer[ClientConnection.MAX_PENDING_REQUESTS];
+        for (int i = 0; i < frames.length; ++i) {
+            frames[i] = Frame.request("top 5");
+        }
+        receive(frames);
+        List<Request> requests = new ArrayList<>();
+        while (requests.size() < frames.length) {
+            requests.addAll(connection.readRequests());
+        }
+
+        connection.addRequests(requests);
+        assertFalse(reads(ops), "A connection with a full request queue must not be read");
+
+        connection.pollRequest();
+        connection.finishRequest();
+        assertTrue(reads(ops), "Reading must resume once the queue has room");
+    }
+
+    @Test
+    void testBackloggedRepliesStopReading() throws IOException {
+        AtomicInteger ops = trackInterestOps();
+        AtomicInteger writable = new AtomicInteger(0);
+        when(channel.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            ByteBuffer frame = invocation.getArgument(0);
+            int cnt = Math.min(frame.remaining(), writable.get());
+            frame.position(frame.position() + cnt);
+            return cnt;
+        });
+
+        receive(Frame.request("top 5"));
+        connection.enqueueResponse(connection.readRequests().get(0), "reply");
+        connection.flush();
+        assertFalse(reads(ops), "A client that does not read its replies must not be read");
+        assertTrue((ops.get() & SelectionKey.OP_WRITE) != 0, "The replies must wait for a writable socket");
+
+        writable.set(Integer.MAX_VALUE);
+        connection.flush();
+        assertTrue(reads(ops), "Reading must resume once the replies are written");
+    }
+}
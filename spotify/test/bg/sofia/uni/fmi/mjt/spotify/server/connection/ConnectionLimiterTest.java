@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionLimiterTest {
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+    private static InetAddress address(int lastByte) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) lastByte});
+    }
+
+    @Test
+    void testLimitPerAddress() throws UnknownHostException {
+        ConnectionLimiter limiter = new ConnectionLimiter(new ConnectionLimits(10, 2, IDLE_TIMEOUT));
+
+        assertTrue(limiter.tryAcquire(address(1)), "The first connection must be accepted");
+        assertTrue(limiter.tryAcquire(address(1)), "Connections up to the limit must be accepted");
+        assertFalse(limiter.tryAcquire(address(1)), "Connections over the address limit must be rejected");
+        assertTrue(limiter.tryAcquire(address(2)), "Other addresses must not be affected");
+
+        limiter.release(address(1));
+        assertTrue(limiter.tryAcquire(address(1)), "A released connection must free its place");
+    }
+
+    @Test
+    void testTotalLimit() throws UnknownHostException {
+        ConnectionLimiter limiter = new ConnectionLimiter(new ConnectionLimits(2, 2, IDLE_TIMEOUT));
+
+        assertTrue(limiter.tryAcquire(address(1)), "The first connection must be accepted");
+        assertTrue(limiter.tryAcquire(address(2)), "Connections up to the limit must be accepted");
+        assertFalse(limiter.tryAcquire(address(3)), "Connections over the total limit must be rejected");
+        assertEquals(2, limiter.getConnectionsCnt(), "Rejected connections must not be counted");
+    }
+
+    @Test
+    void testReleaseUnknownAddress() throws UnknownHostException {
+        ConnectionLimiter limiter = new ConnectionLimiter(new ConnectionLimits(2, 2, IDLE_TIMEOUT));
+        limiter.release(address(1));
+
+        assertEquals(0, limiter.getConnectionsCnt(), "Releasing an address without connections must be ignored");
+    }
+
+    @Test
+    void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionLimits(0, 1, IDLE_TIMEOUT),
+                "The limits must be positive");
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionLimits(1, 1, Duration.ZERO),
+                "The idle timeout must be positive");
+    }
+}
@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.dispatcher;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandDispatcherTest {
+    private CommandDispatcher dispatcher;
+    private CountDownLatch release;
+    private CountDownLatch started;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new CommandDispatcher(1, 1);
+        release = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dispatcher.close();
+    }
+
+    private void blockWorker() throws InterruptedException {
+        dispatcher.dispatch(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS), "The blocking task must start");
+    }
+
+    @Test
+    void testQueueDepth() throws InterruptedException {
+        blockWorker();
+        dispatcher.dispatch(() -> { });
+
+        assertEquals(1, dispatcher.getQueueDepth(), "The waiting task must be counted in the queue depth");
+        assertEquals(2, dispatcher.getDispatchedCnt(), "Both tasks must be counted as dispatched");
+    }
+
+    @Test
+    void testDispatchRejectedWhenFull() throws InterruptedException {
+        blockWorker();
+        dispatcher.dispatch(() -> { });
+
+        assertFalse(dispatcher.dispatch(() -> { }), "Dispatching to a full queue must be rejected");
+        assertEquals(1, dispatcher.getRejectedCnt(), "The rejected task must be counted");
+    }
+}
@@ -0,0 +1,90 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLoggerTest {
+    private static final int CAPACITY = 1024;
+
+    private final StringWriter out = new StringWriter();
+    private final StringWriter errOut = new StringWriter();
+
+    @Test
+    void testEventsWrittenOnClose() {
+        AsyncLogger logger = new AsyncLogger(CAPACITY, LogLevel.INFO, out, errOut);
+        logger.log(LogLevel.INFO, "request", "user@mail.com", "top 5");
+        logger.log(LogLevel.INFO, "request", null, "login user@mail.com pass");
+        logger.close();
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length, "Every event must be written before close returns");
+        assertTrue(lines[0].endsWith("INFO [" + Thread.currentThread().getName() + "] request user=user@mail.com top 5"),
+                "The event must be written with its level, thread, user and text: " + lines[0]);
+        assertFalse(lines[1].contains("user="), "Events without a user must not have a user field: " + lines[1]);
+    }
+
+    @Test
+    void testLevelFiltersEvents() {
+        AsyncLogger logger = new AsyncLogger(CAPACITY, LogLevel.WARN, out, errOut);
+        logger.log(LogLevel.INFO, "request", null, "top 5");
+        logger.log(LogLevel.ERROR, "reactor-error", null, "broken");
+        logger.setLevel(LogLevel.DEBUG);
+        logger.log(LogLevel.DEBUG, "reply", null, "Top Songs:");
+        logger.close();
+
+        String written = out.toString();
+        assertFalse(written.contains("request"), "Events below the level must be skipped");
+        assertTrue(written.contains("reactor-error"), "Events above the level must be written");
+        assertTrue(written.contains("reply"), "A changed level must apply to the following events");
+    }
+
+    @Test
+    void testThrowableWrittenToErrorOutput() {
+        AsyncLogger logger = new AsyncLogger(CAPACITY, LogLevel.INFO, out, errOut);
+        logger.log(LogLevel.WARN, "command-failed", null, "Invalid", new IllegalStateException("Invalid"));
+        logger.close();
+
+        assertTrue(errOut.toString().startsWith("Invalid["), "The stack trace must go to the error output");
+    }
+
+    @Test
+    void testSamplingKeepsSomeEvents() {
+        AsyncLogger logger = new AsyncLogger(CAPACITY, LogLevel.INFO, out, errOut);
+        logger.setSampleRate(1_000_000);
+        for (int i = 0; i < 100; ++i) {
+            logger.logSampled(LogLevel.INFO, "request", null, "top 5");
+        }
+        logger.setSampleRate(1);
+        logger.logSampled(LogLevel.INFO, "request", null, "search");
+        logger.close();
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertTrue(lines.length < 10, "Sampling must skip most of the events");
+        assertTrue(lines[lines.length - 1].endsWith("search"), "A sample rate of one must keep every event");
+    }
+
+    @Test
+    void testOverflowIsCountedNotBlocking() {
+        AsyncLogger logger = new AsyncLogger(2, LogLevel.INFO, out, errOut);
+        for (int i = 0; i < 100_000; ++i) {
+            logger.log(LogLevel.INFO, "request", null, "top 5");
+        }
+        long dropped = logger.getDroppedCnt();
+        logger.close();
+
+        assertTrue(dropped > 0, "Events that do not fit the buffer must be dropped and counted");
+        assertTrue(out.toString().contains("log-overflow dropped="), "Dropped events must be reported in the log");
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncLogger(1000, LogLevel.INFO, out, errOut),
+                "A capacity that is not a power of two must be rejected");
+    }
+}
@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtPercentile(99), "An empty histogram must report 0");
+        assertEquals(0, histogram.getMean(), "An empty histogram must have a mean of 0");
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10; ++value) {
+            histogram.record(value);
+        }
+
+        assertEquals(5, histogram.getValueAtPercentile(50), "Values below 16 must be kept exactly");
+        assertEquals(10, histogram.getValueAtPercentile(100), "The top percentile must be the maximum");
+        assertEquals(5.5, histogram.getMean(), "The mean must be exact");
+    }
+
+    @Test
+    void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; ++value) {
+            histogram.record(value * 1_000);
+        }
+
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(Math.abs(p99 - 99_000_000) <= 99_000_000 * 0.07, "p99 must be within the bucket precision: " + p99);
+        assertEquals(100_000_000, histogram.getMax(), "The maximum must be exact");
+        assertEquals(100_000, histogram.getCount(), "Every value must be counted");
+    }
+
+    @Test
+    void testBucketBoundaries() {
+        for (long value : new long[] {0, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value, "A bucket must cover its values: " + value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value,
+                    "The previous bucket must end below the value: " + value);
+        }
+    }
+}
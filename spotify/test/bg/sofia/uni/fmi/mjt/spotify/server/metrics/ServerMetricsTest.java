@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.metrics;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.commands.CommandType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServerMetricsTest {
+
+    @Mock
+    private Server server;
+
+    @Mock
+    private Command command;
+
+    private ServerMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new ServerMetrics(server);
+    }
+
+    @Test
+    void testCommandsCountedPerType() {
+        when(command.getType()).thenReturn(CommandType.SEARCH);
+        metrics.recordParse(command, 1_000);
+        metrics.recordParse(command, 2_000);
+        metrics.recordFailure(command);
+
+        assertEquals(Map.of("search", 2L), metrics.getCommandCounts(), "Only the commands seen must be reported");
+        assertEquals(Map.of("search", 1L), metrics.getCommandFailures(), "Failures must be counted per command");
+    }
+
+    @Test
+    void testUnparsedRequestsCountedAsInvalid() {
+        metrics.recordParse(null, 1_000);
+        metrics.recordFailure(null);
+
+        assertEquals(2, metrics.getInvalidRequests(), "Requests without a command must be counted as invalid");
+        assertEquals(Map.of(), metrics.getCommandCounts(), "Invalid requests must not be counted as commands");
+    }
+
+    @Test
+    void testActiveConnections() {
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+
+        assertEquals(1, metrics.getActiveConnections(), "Closed connections must not be counted");
+    }
+
+    @Test
+    void testBytesStreamed() {
+        metrics.addBytesStreamed(1024);
+        metrics.addBytesStreamed(2048);
+
+        assertEquals(3072, metrics.getBytesStreamed(), "Every streamed byte must be counted");
+    }
+}
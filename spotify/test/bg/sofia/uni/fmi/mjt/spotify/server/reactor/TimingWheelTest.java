@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.reactor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+    private static final long TICK = 10;
+    private static final long SPAN = 100;
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK, SPAN, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void testItemExpiresAfterDeadline() {
+        wheel.schedule("a", 35);
+
+        wheel.advance(35, expired::add);
+        assertTrue(expired.isEmpty(), "An item must not expire before its deadline has passed");
+
+        wheel.advance(40, expired::add);
+        assertEquals(List.of("a"), expired, "An item must expire on the first tick after its deadline");
+    }
+
+    @Test
+    void testItemsExpireInDeadlineOrder() {
+        wheel.schedule("late", 80);
+        wheel.schedule("early", 20);
+
+        wheel.advance(100, expired::add);
+        assertEquals(List.of("early", "late"), expired, "Items must expire in the order of their deadlines");
+    }
+
+    @Test
+    void testRescheduledItemExpiresAgain() {
+        wheel.schedule("a", 10);
+        wheel.advance(20, item -> wheel.schedule(item, 50));
+        wheel.advance(60, expired::add);
+
+        assertEquals(List.of("a"), expired, "An item scheduled again from the consumer must expire again");
+    }
+
+    @Test
+    void testDeadlineBeyondSpanPulledIn() {
+        wheel.schedule("a", 10_000);
+
+        wheel.advance(SPAN + 2 * TICK, expired::add);
+        assertEquals(List.of("a"), expired, "A deadline beyond the span must expire within one turn of the wheel");
+    }
+
+    @Test
+    void testInvalidTick() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, SPAN, 0),
+                "A tick must be positive");
+    }
+}
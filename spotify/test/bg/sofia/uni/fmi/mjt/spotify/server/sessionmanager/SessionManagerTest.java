@@ -0,0 +1,132 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.Database;
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.InvalidPasswordException;
+import bg.sofia.uni.fmi.mjt.spotify.database.exceptions.NonExistingUserException;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.exceptions.InvalidEmailException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.AlreadyStreamingException;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.AlreadyLoggedUserException;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.exceptions.NotLoggedUserException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SessionManagerTest {
+
+    @Mock
+    private Database database;
+
+    private SessionManager sessionManager;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sessionManager = new SessionManager(database);
+        user = new User("test@mail.com", "password");
+    }
+
+    @Test
+    void testLogIn() throws Exception {
+        sessionManager.logInUser(user);
+        verify(database).checkUser(user);
+        assertTrue(sessionManager.isLoggedIn(user), "Logged in user was not found");
+    }
+
+    @Test
+    void testLogInMultipleUsers() throws Exception {
+        User user2 = new User("user2@mail.com", "pass");
+        sessionManager.logInUser(user);
+        sessionManager.logInUser(user2);
+
+        assertTrue(sessionManager.isLoggedIn(user), "First logged in user was not found");
+        assertTrue(sessionManager.isLoggedIn(user2), "Second logged in user was not found");
+    }
+
+    @Test
+    void testLogInAlreadyLogged() throws Exception {
+        sessionManager.logInUser(user);
+
+        assertThrows(AlreadyLoggedUserException.class,
+                () -> sessionManager.logInUser(user),
+                "Should throw if user tries to log in twice");
+    }
+
+    @Test
+    void testLogInInvalid() throws Exception {
+        doThrow(new InvalidPasswordException("Bad pass")).when(database).checkUser(user);
+
+        assertThrows(InvalidPasswordException.class,
+                () -> sessionManager.logInUser(user), "Invalid password must throw");
+
+        assertFalse(sessionManager.isLoggedIn(user), "Not logged user should not be found");
+    }
+
+    @Test
+    void testLogInNull() throws Exception {
+        assertDoesNotThrow(() -> sessionManager.logInUser(null), "Null user must not throw");
+        verify(database, never()).checkUser(any());
+    }
+
+    @Test
+    void testLogOut() throws Exception {
+        sessionManager.logInUser(user);
+        sessionManager.logOut(user);
+        assertFalse(sessionManager.isLoggedIn(user), "Logged out user should not be found");
+
+        assertDoesNotThrow(() -> sessionManager.logInUser(user), "Logged out user must be able to log in again");
+    }
+
+    @Test
+    void testLogOutNotLogged() {
+        assertThrows(NotLoggedUserException.class,
+                () -> sessionManager.logOut(user), "Not logged user must throw when logged out");
+    }
+
+    @Test
+    void testLogOutNotExist() throws Exception {
+        doThrow(new NonExistingUserException("No user")).when(database).checkUser(eq(user.getEmail()), anyString());
+
+        assertThrows(NonExistingUserException.class,
+                () -> sessionManager.logOut(user), "Not logged user must throw when logged out");
+    }
+
+    @Test
+    void testStartStreamingTwice() throws Exception {
+        sessionManager.startStreaming(user);
+
+        assertTrue(sessionManager.isStreaming(user), "Streaming user was not found");
+        assertThrows(AlreadyStreamingException.class,
+                () -> sessionManager.startStreaming(user), "Must throw for users that are already streaming");
+    }
+
+    @Test
+    void testStopStreamingReleasesUser() throws Exception {
+        sessionManager.startStreaming(user);
+        sessionManager.stopStreaming(user);
+
+        assertFalse(sessionManager.isStreaming(user), "Stopped user must not be streaming");
+        assertDoesNotThrow(() -> sessionManager.startStreaming(user), "Stopped user must be able to stream again");
+    }
+
+    @Test
+    void testIsStreamingUnknownUser() throws InvalidEmailException {
+        User unknownUser = new User("unknown@test.com", "pass");
+
+        assertFalse(sessionManager.isStreaming(unknownUser), "Unknown user should not be streaming");
+    }
+}
@@ -0,0 +1,206 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
+
+import bg.sofia.uni.fmi.mjt.spotify.database.Database;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.song.Song;
+import bg.sofia.uni.fmi.mjt.spotify.database.units.user.User;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcDecoder;
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.cache.ChunkCache;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.InvalidStartPositionException;
+import bg.sofia.uni.fmi.mjt.spotify.server.metrics.ServerMetrics;
+import bg.sofia.uni.fmi.mjt.spotify.server.sessionmanager.SessionManager;
+import bg.sofia.uni.fmi.mjt.spotify.server.transcoder.LpcAudioEncoder;
+import bg.sofia.uni.fmi.mjt.spotify.server.transcoder.Transcoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StreamerTest {
+    private static final String TEST_SONG = "Title-Artist.wav";
+    private static final int FRAMES = 8000;
+    private static final AudioFormat FORMAT = new AudioFormat(FRAMES, 16, 1, true, false);
+
+    @Mock
+    private Server server;
+
+    @Mock
+    private Database database;
+
+    @Mock
+    private SessionManager sessionManager;
+
+    @Mock
+    private User user;
+
+    @Mock
+    private ServerMetrics metrics;
+
+    @Mock
+    private SocketChannel channel;
+
+    private Path testDir;
+    private Song song;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testDir = Files.createTempDirectory("spotify-streamer-test");
+        // one second of 8 kHz mono 16 bit silence
+        writeSong(new byte[FRAMES * 2]);
+        String folder = testDir + File.separator;
+        song = Song.of(folder, TEST_SONG);
+
+        when(server.getDatabase()).thenReturn(database);
+        when(database.getSongSrc()).thenReturn(folder);
+        when(server.getSessionManager()).thenReturn(sessionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(testDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void writeSong(byte[] samples) throws IOException {
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(samples), FORMAT, FRAMES)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, testDir.resolve(TEST_SONG).toFile());
+        }
+    }
+
+    // the payloads of the audio frames of a whole stream
+    private List<byte[]> stream(AudioCodec codec) throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        when(channel.write(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            int written = buffer.remaining();
+            byte[] bytes = new byte[written];
+            buffer.get(bytes);
+            wire.writeBytes(bytes);
+            return written;
+        });
+        try (Streamer streamer = new Streamer(song, user, server, 0, codec)) {
+            streamer.start();
+            while (streamer.hasMore()) {
+                streamer.writeFrame(channel);
+            }
+        }
+
+        ByteBuffer frames = ByteBuffer.wrap(wire.toByteArray());
+        List<byte[]> payloads = new ArrayList<>();
+        while (frames.hasRemaining()) {
+            byte type = frames.get();
+            byte[] payload = new byte[frames.getInt()];
+            frames.get(payload);
+            assertEquals(FrameType.AUDIO.getCode(), type, "A stream must send audio frames only");
+            payloads.add(payload);
+        }
+        return payloads;
+    }
+
+    // the decoded audio of a whole stream
+    private byte[] streamLpc() throws Exception {
+        LpcDecoder decoder = new LpcDecoder(1, false);
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        for (byte[] payload : stream(AudioCodec.LPC)) {
+            audio.writeBytes(decoder.decode(payload));
+        }
+        return audio.toByteArray();
+    }
+
+    // the song file as it was sent
+    private byte[] streamPcm() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        stream(AudioCodec.PCM).forEach(file::writeBytes);
+        return file.toByteArray();
+    }
+
+    private static byte[] ramp() {
+        byte[] ramp = new byte[FRAMES * 2];
+        for (int i = 0; i < FRAMES; ++i) {
+            ramp[2 * i] = (byte) i;
+            ramp[2 * i + 1] = (byte) (i >> Byte.SIZE);
+        }
+        return ramp;
+    }
+
+    @Test
+    void testStartPastEndKeepsStreamsCnt() throws Exception {
+        Streamer listening = new Streamer(song, user, server);
+        listening.start();
+
+        Streamer pastEnd = new Streamer(song, user, server, 99);
+        assertThrows(InvalidStartPositionException.class, pastEnd::start,
+                "A start past the end of the song must be refused");
+        pastEnd.close();
+
+        assertEquals(1, song.getStreamsCnt(), "A refused stream must not change the streams of the song");
+        assertEquals(1, song.getSourceRefsCnt(), "A refused stream must release its source");
+
+        listening.close();
+        assertEquals(0, song.getStreamsCnt(), "A finished stream must be uncounted");
+        assertEquals(0, song.getSourceRefsCnt(), "A finished stream must release its source");
+    }
+
+    @Test
+    void testStreamAfterReencode() throws Exception {
+        when(server.getTranscoder())
+                .thenReturn(new Transcoder(testDir.resolve("transcoded"), List.of(new LpcAudioEncoder()), Runnable::run));
+        when(server.getChunkCache()).thenReturn(new ChunkCache(ChunkCache.CHUNK_SIZE * 4L));
+        when(server.getMetrics()).thenReturn(metrics);
+
+        assertArrayEquals(new byte[FRAMES * 2], streamLpc(), "The transcoded song must be streamed");
+
+        byte[] ramp = ramp();
+        Path songFile = testDir.resolve(TEST_SONG);
+        FileTime encoded = Files.getLastModifiedTime(songFile);
+        writeSong(ramp);
+        Files.setLastModifiedTime(songFile, FileTime.fromMillis(encoded.toMillis() + 10_000));
+
+        assertArrayEquals(ramp, streamLpc(), "The chunks of the previous output must not be streamed");
+    }
+
+    @Test
+    void testPcmStreamAfterFileChanged() throws Exception {
+        when(server.getChunkCache()).thenReturn(new ChunkCache(ChunkCache.CHUNK_SIZE * 4L));
+        when(server.getMetrics()).thenReturn(metrics);
+        Path songFile = testDir.resolve(TEST_SONG);
+
+        assertArrayEquals(Files.readAllBytes(songFile), streamPcm(), "The song file must be streamed");
+
+        // a file of the same length passes any check of the chunk size
+        writeSong(ramp());
+        assertArrayEquals(Files.readAllBytes(songFile), streamPcm(), "The chunks of the previous file must not be streamed");
+    }
+}
@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenBucketTest {
+    private static final long RATE = 1000;
+    private static final long CAPACITY = 500;
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TokenBucket bucket = new TokenBucket(RATE, CAPACITY, 0);
+
+    @Test
+    void testStartsFull() {
+        assertEquals(CAPACITY, bucket.available(0), "A new bucket must allow its whole capacity as a burst");
+    }
+
+    @Test
+    void testRefillsAtRate() {
+        bucket.consume(CAPACITY);
+        assertEquals(0, bucket.available(0), "Consumed tokens must not be available");
+
+        assertEquals(100, bucket.available(100 * MILLI), "1000 tokens per second must refill 100 tokens in 100 ms");
+    }
+
+    @Test
+    void testRefillCappedAtCapacity() {
+        bucket.consume(CAPACITY);
+
+        assertEquals(CAPACITY, bucket.available(TimeUnit.SECONDS.toNanos(10)),
+                "Idle time must not accumulate more than the capacity");
+    }
+
+    @Test
+    void testNanosUntil() {
+        bucket.consume(CAPACITY);
+
+        assertEquals(0, bucket.nanosUntil(0, 0), "Nothing must be waited for when enough tokens are available");
+        assertEquals(200 * MILLI, bucket.nanosUntil(200, 0), "200 tokens must take 200 ms at 1000 per second");
+        assertEquals(150 * MILLI, bucket.nanosUntil(200, 50 * MILLI), "The tokens refilled so far must count");
+    }
+
+    @Test
+    void testNanosUntilMoreThanCapacity() {
+        bucket.consume(CAPACITY);
+
+        assertEquals(CAPACITY * MILLI, bucket.nanosUntil(10 * CAPACITY, 0),
+                "More than the capacity can never be available, waiting for a full bucket is enough");
+    }
+
+    @Test
+    void testInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, CAPACITY, 0),
+                "The rate must be positive");
+    }
+}
@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.streamer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WavHeaderTest {
+
+    private static ByteBuffer wav(String... chunks) {
+        ByteBuffer file = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        file.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        for (String chunk : chunks) {
+            String[] idAndSize = chunk.split(":");
+            int size = Integer.parseInt(idAndSize[1]);
+            file.put(idAndSize[0].getBytes(StandardCharsets.US_ASCII)).putInt(size);
+            file.position(file.position() + size + (size & 1));
+        }
+        return file.flip();
+    }
+
+    @Test
+    void testCanonicalHeader() {
+        assertEquals(44, WavHeader.dataOffset(wav("fmt :16", "data:100")),
+                "The samples of a canonical wav file must start after its 44 byte header");
+    }
+
+    @Test
+    void testChunksBeforeData() {
+        assertEquals(12 + 24 + 8 + 8 + 8, WavHeader.dataOffset(wav("fmt :16", "LIST:7", "data:10")),
+                "Other chunks must be skipped, odd sized ones with their padding byte");
+    }
+
+    @Test
+    void testNoDataChunk() {
+        assertEquals(WavHeader.NO_DATA, WavHeader.dataOffset(wav("fmt :16")),
+                "A file without samples must be reported");
+    }
+}
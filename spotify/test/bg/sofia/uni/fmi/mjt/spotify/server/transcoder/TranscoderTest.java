@@ -0,0 +1,171 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.transcoder;
+
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.AudioCodec;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.audio.LpcDecoder;
+import bg.sofia.uni.fmi.mjt.spotify.protocol.binary.exceptions.MalformedMessageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscoderTest {
+    private static final String TEST_SONG = "Title-Artist.wav";
+    private static final int FRAMES = Transcoder.BLOCK_FRAMES * 2 + 100;
+
+    private Path testDir;
+    private Path songFile;
+    private Path cacheDir;
+    private byte[] samples;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        testDir = Files.createTempDirectory("spotify-transcoder-test");
+        songFile = testDir.resolve(TEST_SONG);
+        cacheDir = testDir.resolve("transcoded");
+        samples = new byte[FRAMES * 4];
+        ByteBuffer pcm = ByteBuffer.wrap(samples);
+        for (int i = 0; i < FRAMES; ++i) {
+            short sample = (short) (8000 * Math.sin(i * 2 * Math.PI * 220 / 44100));
+            // little endian stereo
+            pcm.put((byte) sample).put((byte) (sample >> 8)).put((byte) sample).put((byte) (sample >> 8));
+        }
+        writeWav(songFile, new AudioFormat(44100, 16, 2, true, false), samples);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(testDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void writeWav(Path file, AudioFormat format, byte[] data) throws IOException {
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format,
+                data.length / format.getFrameSize())) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file.toFile());
+        }
+    }
+
+    // encodes right away, on the thread of the stream
+    private Transcoder transcoder() {
+        return new Transcoder(cacheDir, List.of(new LpcAudioEncoder()), Runnable::run);
+    }
+
+    private static byte[] decode(TranscodedFile file, long from) throws MalformedMessageException {
+        ByteBuffer data = file.data();
+        data.limit((int) file.getDataEnd()).position((int) from);
+        byte[] encoded = new byte[data.remaining()];
+        data.get(encoded);
+        return new LpcDecoder(2, false).decode(encoded);
+    }
+
+    @Test
+    void testTranscodedLosslessly() throws IOException, MalformedMessageException {
+        TranscodedFile file = transcoder().transcode(songFile, AudioCodec.LPC);
+
+        assertEquals(FRAMES, file.getTotalFrames(), "Every frame of the song must be transcoded");
+        assertEquals(3, file.getBlocksCnt(), "The last block must hold the remaining frames");
+        assertArrayEquals(samples, decode(file, file.getDataOffset()), "The decoded samples must be the original");
+        assertTrue(file.getDataEnd() - file.getDataOffset() < samples.length / 2,
+                "The transcoded samples must be smaller than the original");
+    }
+
+    @Test
+    void testStartAtBlock() throws IOException, MalformedMessageException {
+        TranscodedFile file = transcoder().transcode(songFile, AudioCodec.LPC);
+        int block = file.blockOf(Transcoder.BLOCK_FRAMES + 10);
+
+        assertEquals(1, block, "The frame must be found in its block");
+        byte[] expected = new byte[samples.length - Transcoder.BLOCK_FRAMES * 4];
+        System.arraycopy(samples, Transcoder.BLOCK_FRAMES * 4, expected, 0, expected.length);
+        assertArrayEquals(expected, decode(file, file.getBlockOffset(block)),
+                "A stream must be decodable from any block");
+        assertEquals(file.getBlocksCnt(), file.blockOf(FRAMES + 1), "A frame past the end must have no block");
+    }
+
+    @Test
+    void testOutputCached() throws IOException {
+        Transcoder transcoder = transcoder();
+        TranscodedFile first = transcoder.transcode(songFile, AudioCodec.LPC);
+        Path output = cacheDir.resolve(TEST_SONG + ".lpc");
+        FileTime encoded = Files.getLastModifiedTime(output);
+
+        assertSame(first, transcoder.transcode(songFile, AudioCodec.LPC), "A song must be encoded once");
+        assertEquals(FRAMES, transcoder().transcode(songFile, AudioCodec.LPC).getTotalFrames(),
+                "The output must be read from the disk after a restart");
+        assertEquals(encoded, Files.getLastModifiedTime(output), "The output on the disk must be reused");
+
+        Files.setLastModifiedTime(songFile, FileTime.fromMillis(encoded.toMillis() + 1000));
+        assertNotSame(first, transcoder.transcode(songFile, AudioCodec.LPC),
+                "A song changed since it was encoded must be encoded again");
+    }
+
+    @Test
+    void testEncodedInBackground() throws IOException {
+        List<Runnable> tasks = new ArrayList<>();
+        Transcoder transcoder = new Transcoder(cacheDir, List.of(new LpcAudioEncoder()), tasks::add);
+
+        assertNull(transcoder.transcode(songFile, AudioCodec.LPC), "A song must be streamed as it is while encoded");
+        assertNull(transcoder.transcode(songFile, AudioCodec.LPC), "A song must be streamed as it is while encoded");
+        assertEquals(1, tasks.size(), "A song must be encoded once however many streams ask for it");
+
+        tasks.get(0).run();
+        assertEquals(FRAMES, transcoder.transcode(songFile, AudioCodec.LPC).getTotalFrames(),
+                "The output must be streamed once it is encoded");
+    }
+
+    @Test
+    void testEncodingFailureReported() throws IOException {
+        Files.writeString(cacheDir, "not a directory");
+        Transcoder transcoder = transcoder();
+
+        assertNull(transcoder.transcode(songFile, AudioCodec.LPC), "A song must be streamed as it is while encoded");
+        assertThrows(IOException.class, () -> transcoder.transcode(songFile, AudioCodec.LPC),
+                "A failed encoding must be reported to the next stream");
+    }
+
+    @Test
+    void testUnsupportedFormat() throws IOException {
+        writeWav(songFile, new AudioFormat(8000, 8, 1, false, false), new byte[100]);
+        AtomicInteger probes = new AtomicInteger();
+        Transcoder transcoder = new Transcoder(cacheDir, List.of(new LpcAudioEncoder() {
+            @Override
+            public boolean supports(AudioFormat format) {
+                probes.incrementAndGet();
+                return super.supports(format);
+            }
+        }), Runnable::run);
+
+        assertNull(transcoder.transcode(songFile, AudioCodec.LPC), "Only 16 bit songs can be encoded");
+        assertNull(transcoder.transcode(songFile, AudioCodec.LPC), "Only 16 bit songs can be encoded");
+        assertEquals(1, probes.get(), "An unsupported song must not be read again until it changes");
+        assertNull(transcoder().transcode(songFile, AudioCodec.PCM), "There must be no encoder for PCM");
+        assertTrue(Files.notExists(cacheDir) || Files.list(cacheDir).findAny().isEmpty(),
+                "Nothing must be written for an unsupported song");
+    }
+}